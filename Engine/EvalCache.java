@@ -0,0 +1,120 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine;
+
+import src.Engine.Movegen.Board;
+
+import java.util.Arrays;
+
+import static src.Engine.Types.EVAL_NONE;
+
+/**
+ * Remembers the static evaluation of the network for positions. Unlike the static evaluation in the
+ * transposition table an entry is not lost when the transposition table replaces the entry of the position,
+ * and the size of the cache is independent of the transposition table.
+ * The move order doesn't matter in these games, so the same position is reached over and over again.
+ */
+public final class EvalCache {
+    /*
+        An entry is one long: the upper 48 bits of the key followed by the evaluation in the lower 16 bits.
+        A long is written at once, so the cache can be shared between threads without locking.
+        The lower bits of the key select the entry, so they are still checked.
+     */
+    private static final int ENTRY_SIZE = 8;
+    private static final long KEY_MASK = ~0xFFFFL;
+
+    private long[] table;
+    private int mask;
+
+    /**
+     * @param size The size in MB, 0 disables the cache
+     */
+    public EvalCache(int size) {
+        resize(size);
+    }
+
+    /**
+     * Looks up the evaluation of a position
+     *
+     * @param key The key of the position, see {@link #variantKey(Board)}
+     * @return The evaluation, or {@link Types#EVAL_NONE} if the position is not in the cache
+     */
+    public int probe(long key) {
+        if (table.length == 0) {
+            return EVAL_NONE;
+        }
+
+        final long entry = table[(int) key & mask];
+        if (entry != 0 && ((entry ^ key) & KEY_MASK) == 0) {
+            return (short) entry;
+        }
+
+        return EVAL_NONE;
+    }
+
+    /**
+     * Stores the evaluation of a position, it always replaces the previous entry
+     *
+     * @param key  The key of the position
+     * @param eval The evaluation, which has to fit into a short
+     */
+    public void store(long key, int eval) {
+        if (table.length == 0) {
+            return;
+        }
+
+        table[(int) key & mask] = (key & KEY_MASK) | (eval & 0xFFFFL);
+    }
+
+    /**
+     * The keys of the board only depend on the stones, so the same stones on a board of a different size or
+     * win length would share an entry. The key of such a variant is xor-ed into the key of every position
+     *
+     * @param board The board that is searched
+     * @return The key of the variant
+     */
+    public static long variantKey(Board board) {
+        long z = ((long) board.getSize() << 16 | board.getWinningSize()) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Resizes the cache, which also clears it
+     *
+     * @param size The new size in MB, 0 disables the cache
+     */
+    public void resize(int size) {
+        if (size <= 0) {
+            this.table = new long[0];
+            this.mask = 0;
+        } else {
+            final long entries = (long) size * 1_048_576L / ENTRY_SIZE;
+            this.table = new long[Integer.highestOneBit((int) Math.min(entries, 1 << 28))];
+            this.mask = table.length - 1;
+        }
+    }
+
+    /**
+     * Removes all entries without reallocating the cache, e.g. when the network changes
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+}
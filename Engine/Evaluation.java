@@ -19,12 +19,22 @@
 package src.Engine;
 
 import src.Engine.Movegen.Board;
+import src.Engine.NNUE.Accumulator;
 
+import static src.Engine.Types.EVAL_MATE_IN_MAX_PLY;
 import static src.Engine.Types.O_SIDE;
 import static src.Engine.Types.X_SIDE;
 
 public class Evaluation {
+    // A network must never return a mate score
+    private static final int MAX_NETWORK_EVAL = EVAL_MATE_IN_MAX_PLY - 1;
+
     public int evaluate(Board board) {
+        // The network replaces the classical evaluation while the board carries its accumulator
+        final Accumulator accumulator = board.getAccumulator();
+        if (accumulator != null) {
+            return Math.clamp(accumulator.evaluate(board.getSideToMove()), -MAX_NETWORK_EVAL, MAX_NETWORK_EVAL);
+        }
 
         int xEval = getEvalForSide(board, X_SIDE);
         int oEval = getEvalForSide(board, O_SIDE);
@@ -35,13 +45,10 @@ public class Evaluation {
         return perspective * diff;
     }
 
+    /**
+     * Reads the evaluation of a side off the running totals of the board, so this does not depend on the board size
+     */
     private int getEvalForSide(Board board, byte side) {
-        int eval = 0;
-
-        // Stuff for the distance calculation
-        final int size = board.getSize();
-        final int center = size / 2;
-
         /*
         LLR        : 2.99
         ELO        : 294.55 +- 45.98
@@ -49,22 +56,17 @@ public class Evaluation {
          */
 
         // Small bonus for playing around the center
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-
-                // If the square is empty, we continue with the loop
-                if (board.isEmpty(i, j)) {
-                    continue;
-                }
-
-                int distanceToCenter = Math.abs(i - center) + Math.abs(j - center);
+        int eval = board.getCentrality(side);
 
-                // 10 is the maximum bonus
-                eval += Math.max(0, 10 - distanceToCenter);
-            }
+        // Lines that can still be completed, the more stones the better
+        final int[] liveWindows = board.getLiveWindows(side);
+        final int threats = liveWindows.length - 2;
+        for (int stones = 1; stones < threats; stones++) {
+            eval += liveWindows[stones] * stones * stones;
         }
 
-        if (board.hasWinWithFurtherOffset(1, side)) {
+        // A line that is one stone away from a win
+        if (threats > 0 && liveWindows[threats] > 0) {
             eval += 100;
         }
 
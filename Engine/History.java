@@ -9,11 +9,11 @@ public class History {
         quietHistory = new int[3][size][size];
     }
 
-    public void updateQuietHistory(int side, Move move, int bonus) {
-        quietHistory[side][move.x()][move.y()] += (bonus - getQuietHistory(side, move) * Math.abs(bonus) / 5000);
+    public void updateQuietHistory(int side, int move, int bonus) {
+        quietHistory[side][Move.getX(move)][Move.getY(move)] += (bonus - getQuietHistory(side, move) * Math.abs(bonus) / 5000);
     }
 
-    public int getQuietHistory(int side, Move move) {
-        return quietHistory[side][move.x()][move.y()];
+    public int getQuietHistory(int side, int move) {
+        return quietHistory[side][Move.getX(move)][Move.getY(move)];
     }
 }
@@ -20,49 +20,107 @@ package src.Engine;
 
 import src.Engine.Movegen.Board;
 import src.Engine.Movegen.Move;
+import src.Engine.Movegen.Patterns;
 
 public class MoveOrder {
-    public int[] scoreMoves(Move[] legalMoves, Move killer, Move hashMove, Board board, History history) {
-
-        int[] scores = new int[legalMoves.length];
-
-        for (int i = 0; i < legalMoves.length; i++) {
-            scores[i] = 0;
+    /*
+    LLR        : 2.98
+    ELO        : 48.91 +- 16.21
+    Games      : [438, 311, 631]
+     */
+    public static final int HASH_MOVE_SCORE = 10000000;
+    public static final int KILLER_SCORE = 500000;
+
+    // The bonus for the threat a move creates in one direction, indexed by the pattern.
+    // Blocking a threat of the other side gets half of it
+    private static final int[] PATTERN_BONUS = {0, 20, 50, 400, 500, 5000, 100000};
+
+    // The bonus of every square for playing around the center, indexed by the encoded move
+    private int[] squareBonus = new int[0];
+    private int tableSize = -1;
+
+    /**
+     * Precomputes the square table for the board size, this only does work when the size changed
+     *
+     * @param size The size of the board
+     */
+    public void init(int size) {
+        if (size == tableSize) {
+            return;
+        }
 
-            final Move move = legalMoves[i];
+        final int center = size / 2;
+        squareBonus = new int[Move.encode(size - 1, size - 1) + 1];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int distanceToCenter = Math.abs(x - center) + Math.abs(y - center);
 
-            /*
-            LLR        : 2.98
-            ELO        : 48.91 +- 16.21
-            Games      : [438, 311, 631]
-             */
-            if (!hashMove.equals(Move.NULL_MOVE) && move.equals(hashMove)) {
-                scores[i] = 10000000;
-                continue;
+                // 100 is the maximum bonus
+                squareBonus[Move.encode(x, y)] = Math.max(0, 100 - distanceToCenter);
             }
-            if (!killer.equals(Move.NULL_MOVE) && move.equals(killer)) {
-                scores[i] += 500000;
-            } else {
-                int center = board.getSize() / 2;
-
-                int distanceToCenter = Math.abs(move.x() - center) + Math.abs(move.y() - center);
-
-                // 10 is the maximum bonus
-                int centralBonus = Math.max(0, 100 - distanceToCenter);
+        }
+        tableSize = size;
+    }
 
-                scores[i] += centralBonus;
+    /**
+     * Assigns a score to every encoded move, {@link #init(int)} has to be called for the board size first
+     *
+     * @param legalMoves The encoded moves
+     * @param scores     The buffer for the scores
+     * @param count      The amount of moves in the buffer
+     * @param killer     The encoded killer move
+     * @param hashMove   The encoded move from the transposition table
+     */
+    public void scoreMoves(int[] legalMoves, int[] scores, int count, int killer, int hashMove, Board board, History history) {
+        for (int i = 0; i < count; i++) {
+            final int move = legalMoves[i];
+
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE_SCORE;
+            } else if (move == killer) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = squareBonus[move] + patternBonus(board, move);
             }
 
             //scores[i] += history.getQuietHistory(board.getSideToMove(), legalMoves[i]);
         }
+    }
+
+    /**
+     * Scores the threats a move creates for the side to move and the threats it blocks for the other side
+     *
+     * @param board The position
+     * @param move  The encoded move
+     * @return The bonus, 0 if the win length has no pattern table
+     */
+    private static int patternBonus(Board board, int move) {
+        if (board.getWinningSize() > Patterns.MAX_WINNING_SIZE) {
+            return 0;
+        }
 
-        return scores;
+        final int side = board.getSideToMove();
+        int attack = 0, defense = 0;
+        for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+            attack += PATTERN_BONUS[board.getPattern(side, move, direction)];
+            defense += PATTERN_BONUS[board.getPattern(side ^ 3, move, direction)];
+        }
+        return attack + defense / 2;
     }
 
-    public void sort(int i, Move[] legalMoves, int[] scores) {
-        for (int j = i + 1; j < legalMoves.length; j++) {
+    /**
+     * Moves the best scored move of the moves from index i onward to index i.
+     * This is only called for the moves that the search actually uses
+     *
+     * @param i          The index that should get the best move
+     * @param legalMoves The encoded moves
+     * @param scores     The scores of the moves
+     * @param count      The amount of moves in the buffer
+     */
+    public void sort(int i, int[] legalMoves, int[] scores, int count) {
+        for (int j = i + 1; j < count; j++) {
             if (scores[j] > scores[i]) {
-                Move temp = legalMoves[j];
+                int temp = legalMoves[j];
                 legalMoves[j] = legalMoves[i];
                 legalMoves[i] = temp;
 
@@ -0,0 +1,145 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine;
+
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+
+/**
+ * Hands out the moves of a node one at a time: first the hash move, then the killer move,
+ * and only then all other moves, which are generated, scored and picked lazily.
+ * A node that cuts on the hash move or the killer never generates the move list.
+ * There is one picker per ply, so the buffers are reused and the search doesn't allocate
+ */
+public class MovePicker {
+    private static final int STAGE_HASH_MOVE = 0;
+    private static final int STAGE_KILLER = 1;
+    private static final int STAGE_GENERATE = 2;
+    private static final int STAGE_QUIETS = 3;
+
+    private final int[] moves;
+    private final int[] scores;
+    private final MoveOrder moveOrder;
+    private Board board;
+    private History history;
+    private int hashMove;
+    private int killer;
+    private int stage;
+    private int count;
+    private int index;
+
+    /**
+     * @param squares   The amount of squares of the board, which is the maximum amount of moves
+     * @param moveOrder The move order that scores the moves
+     */
+    public MovePicker(int squares, MoveOrder moveOrder) {
+        this.moves = new int[squares];
+        this.scores = new int[squares];
+        this.moveOrder = moveOrder;
+    }
+
+    /**
+     * @return The maximum amount of moves
+     */
+    public int capacity() {
+        return moves.length;
+    }
+
+    /**
+     * Prepares the picker for a new node
+     *
+     * @param board    The board of the node
+     * @param history  The history tables
+     * @param hashMove The encoded move from the transposition table, which might be {@link Move#NONE}
+     * @param killer   The encoded killer move of the ply, which might be {@link Move#NONE}
+     */
+    public void init(Board board, History history, int hashMove, int killer) {
+        this.board = board;
+        this.history = history;
+        this.hashMove = isPlayable(hashMove) ? hashMove : Move.NONE;
+        this.killer = killer != this.hashMove && isPlayable(killer) ? killer : Move.NONE;
+        this.stage = STAGE_HASH_MOVE;
+        this.count = 0;
+        this.index = 0;
+    }
+
+    /**
+     * Gets the next move
+     *
+     * @return The encoded move, or {@link Move#NONE} if there are no moves left
+     */
+    public int next() {
+        // The stages run in order, a stage without a move goes on to the next one
+        if (stage == STAGE_HASH_MOVE) {
+            stage = STAGE_KILLER;
+            if (hashMove != Move.NONE) {
+                return hashMove;
+            }
+        }
+
+        if (stage == STAGE_KILLER) {
+            stage = STAGE_GENERATE;
+            if (killer != Move.NONE) {
+                return killer;
+            }
+        }
+
+        if (stage == STAGE_GENERATE) {
+            stage = STAGE_QUIETS;
+            generate();
+        }
+
+        if (index >= count) {
+            return Move.NONE;
+        }
+
+        // Only pick as many moves as the search actually uses
+        moveOrder.sort(index, moves, scores, count);
+        return moves[index++];
+    }
+
+    /**
+     * Generates all other moves without the dead squares, the moves that were already returned are removed from the list
+     */
+    private void generate() {
+        count = board.generateLiveMoves(moves);
+
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == hashMove || moves[i] == killer) {
+                moves[i--] = moves[--count];
+            }
+        }
+
+        moveOrder.scoreMoves(moves, scores, count, Move.NONE, Move.NONE, board, history);
+    }
+
+    /**
+     * Checks if a move from the transposition table or the killer can be played in this position.
+     * The hash move could come from a different position with the same index in the table
+     */
+    private boolean isPlayable(int move) {
+        if (move == Move.NONE) {
+            return false;
+        }
+
+        final int x = Move.getX(move);
+        final int y = Move.getY(move);
+        return x < board.getSize() && y < board.getSize() && board.isEmpty(x, y);
+    }
+}
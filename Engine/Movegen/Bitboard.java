@@ -1,25 +1,59 @@
 package src.Engine.Movegen;
 
-public class Bitboard {
-    private long bits;
+/**
+ * Helpers for square-indexed bitsets stored as flat {@code long[]} planes.
+ * Square {@code index} lives in word {@code index >>> 6} at bit {@code index & 63}.
+ */
+public final class Bitboard {
 
-    public Bitboard() {
-        bits = 0;
+    private Bitboard() {
     }
 
-    public void set(int index) {
-        bits |= (1L << index);
+    /**
+     * Allocates an empty plane that can hold the given amount of squares
+     *
+     * @param squares The amount of squares
+     * @return The new plane
+     */
+    public static long[] create(int squares) {
+        return new long[(squares + 63) >>> 6];
     }
 
-    public void clear(int index) {
-        bits &= ~(1L << index);
+    public static void set(long[] plane, int index) {
+        // Java only uses the low 6 bits of the shift distance
+        plane[index >>> 6] |= (1L << index);
     }
 
-    public boolean isSet(int index) {
-        return ((1L << index) & bits) != 0;
+    public static void clear(long[] plane, int index) {
+        plane[index >>> 6] &= ~(1L << index);
     }
 
-    public long getBits() {
+    public static boolean isSet(long[] plane, int index) {
+        return (plane[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Reads the 64 squares starting at the given index, squares past the end of the plane are empty
+     *
+     * @param plane The plane to read from
+     * @param start The index of the first square
+     * @return The squares start until start + 63
+     */
+    public static long window(long[] plane, int start) {
+        final int word = start >>> 6;
+        final int shift = start & 63;
+
+        if (word >= plane.length) {
+            return 0;
+        }
+
+        long bits = plane[word] >>> shift;
+
+        // Fill up the high bits from the next word
+        if (shift != 0 && word + 1 < plane.length) {
+            bits |= plane[word + 1] << (64 - shift);
+        }
+
         return bits;
     }
 }
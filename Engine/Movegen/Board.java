@@ -1,51 +1,187 @@
 package src.Engine.Movegen;
 
+import src.Engine.NNUE.Accumulator;
+
+import java.util.Arrays;
+
 import static src.Engine.Types.*;
 
 public class Board {
+    // Moves store a coordinate in 8 bits and the Zobrist table is sized for this
+    public static final int MAX_SIZE = 63;
+    // The directions of the lines through a square, see getLine and getPattern
+    public static final int DIRECTIONS = Lines.DIRECTIONS;
     private final int size;
     public int freeSquares;
     public int nodes = 0;
-    private Bitboard[] xBitboards;
-    private Bitboard[] oBitboards;
-    private Bitboard[] occupied;
-    private int offset;
-    private int winningSize;
+    // One bit per square, indexed by x * size + y
+    private final long[] xBitboard;
+    private final long[] oBitboard;
+    private final long[] occupied;
+    // Start squares of all runs, indexed by run length and then direction. Filled on demand
+    private final long[][][] runStarts;
+    // The sides that have a win, indexed by the amount of stones on the board.
+    // Since X_SIDE and O_SIDE are single bits, both can be stored in one byte
+    private final byte[] winners;
+    // Every line of winningSize squares and the amount of X and O stones in it
+    private final Windows windows;
+    private final byte[] xWindowStones;
+    private final byte[] oWindowStones;
+    // The windows without an opposing stone, indexed by side and then by the amount of own stones
+    private final int[][] liveWindows;
+    // The amount of windows without an opposing stone per side, the sum of liveWindows
+    private final int[] liveWindowCount = new int[3];
+    // The windows through every square that don't contain stones of both sides, and the squares where this is zero.
+    // A stone on a dead square can't complete any line anymore
+    private final short[] squareLiveWindows;
+    private final long[] dead;
+    // Every row, column and diagonal of a side as one long, so the line through a square can be read at once
+    private final Lines lines;
+    private final long[] xLines;
+    private final long[] oLines;
+    // The threat patterns of the win length, null if the win length is too large for a table
+    private final Patterns patterns;
+    // The first layer of the evaluation network, null if the classical evaluation is used
+    private Accumulator accumulator;
+    // The center bonus of every square and the summed up bonus of the stones of each side
+    private final int[] centerBonus;
+    private final int[] centrality = new int[3];
+    // Marks the squares that were already collected by getThreatMoves
+    private final int[] collected;
+    private int collectId = 0;
+    private final int offset;
+    private final int winningSize;
+    // Move generation only yields empty squares within this Chebyshev distance of a stone, 0 means every empty square
+    private int radius;
+    // The amount of stones within the radius of every square, and the squares where this is not zero
+    private final short[] nearCount;
+    private final long[] near;
     private int sideToMove = 1;
+    // Zobrist keys of the position and of its 7 rotations and mirror images, including the side to move.
+    // Only the first keyCount keys are maintained, the symmetric keys are only tracked on request
+    private final Symmetry symmetry;
+    private final long[] keys = new long[Symmetry.TRANSFORMS];
+    private int keyCount = 1;
 
     public Board(int size, int offset) {
-        assert size < 64;
-
-        this.xBitboards = new Bitboard[size];
-        for (int i = 0; i < xBitboards.length; i++) {
-            xBitboards[i] = new Bitboard();
-        }
-        this.oBitboards = new Bitboard[size];
-        for (int i = 0; i < oBitboards.length; i++) {
-            oBitboards[i] = new Bitboard();
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("The board size has to be between 1 and " + MAX_SIZE + ", got " + size);
         }
 
-        this.occupied = new Bitboard[size];
-        for (int i = 0; i < occupied.length; i++) {
-            occupied[i] = new Bitboard();
-        }
+        this.xBitboard = Bitboard.create(size * size);
+        this.oBitboard = Bitboard.create(size * size);
+        this.occupied = Bitboard.create(size * size);
+        this.runStarts = new long[size + 1][][];
+        this.winners = new byte[size * size + 1];
         this.freeSquares = size * size;
         this.size = size;
         this.offset = offset;
         this.winningSize = size - offset;
+        this.nearCount = new short[size * size];
+        this.near = Bitboard.create(size * size);
+        this.radius = size >= 15 ? 2 : 0;
+        this.windows = new Windows(size, winningSize);
+        this.symmetry = Symmetry.of(size);
+        this.collected = new int[size * size];
+        this.xWindowStones = new byte[windows.count];
+        this.oWindowStones = new byte[windows.count];
+        this.liveWindows = new int[3][winningSize + 1];
+        this.liveWindows[X_SIDE][0] = windows.count;
+        this.liveWindows[O_SIDE][0] = windows.count;
+        this.liveWindowCount[X_SIDE] = windows.count;
+        this.liveWindowCount[O_SIDE] = windows.count;
+        this.squareLiveWindows = new short[size * size];
+        this.dead = Bitboard.create(size * size);
+        resetLiveSquares();
+        this.lines = new Lines(size);
+        this.xLines = new long[lines.count];
+        this.oLines = new long[lines.count];
+        this.patterns = Patterns.of(winningSize);
+
+        // 10 is the maximum bonus
+        this.centerBonus = new int[size * size];
+        final int center = size / 2;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                centerBonus[x * size + y] = Math.max(0, 10 - Math.abs(x - center) - Math.abs(y - center));
+            }
+        }
+    }
+
+    /**
+     * Creates an independent copy of a board, e.g. for a helper search thread
+     *
+     * @param other The board to copy
+     */
+    public Board(Board other) {
+        this.size = other.size;
+        this.xBitboard = other.xBitboard.clone();
+        this.oBitboard = other.oBitboard.clone();
+        this.occupied = other.occupied.clone();
+        this.runStarts = new long[size + 1][][];
+        this.winners = other.winners.clone();
+        this.freeSquares = other.freeSquares;
+        this.offset = other.offset;
+        this.winningSize = other.winningSize;
+        this.radius = other.radius;
+        this.nearCount = other.nearCount.clone();
+        this.near = other.near.clone();
+        this.windows = other.windows;
+        this.collected = new int[size * size];
+        this.xWindowStones = other.xWindowStones.clone();
+        this.oWindowStones = other.oWindowStones.clone();
+        this.liveWindows = new int[3][];
+        this.liveWindows[X_SIDE] = other.liveWindows[X_SIDE].clone();
+        this.liveWindows[O_SIDE] = other.liveWindows[O_SIDE].clone();
+        this.liveWindowCount[X_SIDE] = other.liveWindowCount[X_SIDE];
+        this.liveWindowCount[O_SIDE] = other.liveWindowCount[O_SIDE];
+        this.squareLiveWindows = other.squareLiveWindows.clone();
+        this.dead = other.dead.clone();
+        this.lines = other.lines;
+        this.xLines = other.xLines.clone();
+        this.oLines = other.oLines.clone();
+        this.patterns = other.patterns;
+        this.accumulator = other.accumulator == null ? null : new Accumulator(other.accumulator);
+        this.centerBonus = other.centerBonus;
+        this.centrality[X_SIDE] = other.centrality[X_SIDE];
+        this.centrality[O_SIDE] = other.centrality[O_SIDE];
+        this.sideToMove = other.sideToMove;
+        this.symmetry = other.symmetry;
+        System.arraycopy(other.keys, 0, this.keys, 0, Symmetry.TRANSFORMS);
+        this.keyCount = other.keyCount;
     }
 
     public void makeMove(Move move) {
         makeMove(move.x(), move.y());
     }
 
+    /**
+     * Makes an encoded move, see {@link Move#encode(int, int)}
+     */
+    public void makeMove(int move) {
+        makeMove(Move.getX(move), Move.getY(move));
+    }
+
     public void makeMove(int x, int y) {
-        if (sideToMove == X_SIDE) {
-            xBitboards[x].set(y);
-        } else {
-            oBitboards[x].set(y);
+        final int index = x * size + y;
+        final int stones = size * size - freeSquares;
+        final long[] bb = sideToMove == X_SIDE ? xBitboard : oBitboard;
+
+        Bitboard.set(bb, index);
+        Bitboard.set(occupied, index);
+        updateKeys(sideToMove, index);
+
+        // Only the windows through the new stone can contain a new win
+        byte winner = winners[stones];
+        if (addStone(sideToMove, index)) {
+            winner |= (byte) sideToMove;
+        }
+        winners[stones + 1] = winner;
+
+        if (radius > 0) {
+            updateNeighbourhood(x, y, 1);
         }
-        occupied[x].set(y);
+
         updateTurn();
         freeSquares--;
     }
@@ -54,20 +190,267 @@ public class Board {
         unmakeMove(move.x(), move.y());
     }
 
+    /**
+     * Unmakes an encoded move, see {@link Move#encode(int, int)}
+     */
+    public void unmakeMove(int move) {
+        unmakeMove(Move.getX(move), Move.getY(move));
+    }
+
     public void unmakeMove(int x, int y) {
+        // The winners are indexed by the amount of stones, so they get restored by increasing freeSquares.
         // Revert to the side that actually placed the piece
         updateTurn();
+        final int index = x * size + y;
         if (sideToMove == X_SIDE) {
-            xBitboards[x].clear(y);
+            Bitboard.clear(xBitboard, index);
         } else {
-            oBitboards[x].clear(y);
+            Bitboard.clear(oBitboard, index);
+        }
+        Bitboard.clear(occupied, index);
+        updateKeys(sideToMove, index);
+        removeStone(sideToMove, index);
+        if (radius > 0) {
+            updateNeighbourhood(x, y, -1);
         }
-        occupied[x].clear(y);
         freeSquares++;
     }
 
+    /**
+     * Adds or removes a stone from the neighbourhood counts of all squares within the radius,
+     * which grows or shrinks the candidate squares like a dilation of the occupied squares
+     *
+     * @param x     The x coordinate of the stone
+     * @param y     The y coordinate of the stone
+     * @param delta 1 if the stone was added, -1 if it was removed
+     */
+    private void updateNeighbourhood(int x, int y, int delta) {
+        final int minX = Math.max(0, x - radius), maxX = Math.min(size - 1, x + radius);
+        final int minY = Math.max(0, y - radius), maxY = Math.min(size - 1, y + radius);
+
+        for (int i = minX; i <= maxX; i++) {
+            for (int j = minY; j <= maxY; j++) {
+                final int index = i * size + j;
+                nearCount[index] += (short) delta;
+
+                if (nearCount[index] == 0) {
+                    Bitboard.clear(near, index);
+                } else {
+                    Bitboard.set(near, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the radius of the candidate moves and recomputes the neighbourhood of the current stones
+     *
+     * @param radius The Chebyshev distance to a stone, 0 generates every empty square
+     */
+    public void setRadius(int radius) {
+        this.radius = Math.max(0, radius);
+        rebuildNeighbourhood();
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    private void rebuildNeighbourhood() {
+        Arrays.fill(nearCount, (short) 0);
+        Arrays.fill(near, 0L);
+
+        if (radius == 0) {
+            return;
+        }
+
+        for (int index = 0; index < size * size; index++) {
+            if (Bitboard.isSet(occupied, index)) {
+                updateNeighbourhood(index / size, index % size, 1);
+            }
+        }
+    }
+
+    /**
+     * Adds a stone to the window counts
+     *
+     * @param side  The side of the stone
+     * @param index The square index of the stone
+     * @return If the stone completed a window, which means that the side has won
+     */
+    private boolean addStone(int side, int index) {
+        final byte[] own = side == X_SIDE ? xWindowStones : oWindowStones;
+        final byte[] other = side == X_SIDE ? oWindowStones : xWindowStones;
+        final int[] ownLive = liveWindows[side];
+        final int[] otherLive = liveWindows[side ^ 3];
+        final int end = windows.squareStart[index + 1];
+        boolean win = false;
+
+        centrality[side] += centerBonus[index];
+        toggleLines(side, index);
+        if (accumulator != null) {
+            accumulator.add(side, index);
+        }
+
+        for (int i = windows.squareStart[index]; i < end; i++) {
+            final int window = windows.squareWindows[i];
+            final int ownStones = own[window]++;
+            final int otherStones = other[window];
+
+            if (otherStones == 0) {
+                ownLive[ownStones]--;
+                ownLive[ownStones + 1]++;
+                win |= ownStones + 1 == winningSize;
+            }
+
+            // The window was still open for the other side, now it is blocked
+            if (ownStones == 0) {
+                otherLive[otherStones]--;
+                liveWindowCount[side ^ 3]--;
+
+                // Now the window has stones of both sides
+                if (otherStones > 0) {
+                    updateLiveSquares(window, -1);
+                }
+            }
+        }
+
+        return win;
+    }
+
+    /**
+     * Adds or removes a window from the live counts of its squares
+     *
+     * @param window The window
+     * @param delta  1 if the window became live for a side again, -1 if it got stones of both sides
+     */
+    private void updateLiveSquares(int window, int delta) {
+        final int stride = windows.stride[window];
+        for (int i = 0, index = windows.firstSquare[window]; i < winningSize; i++, index += stride) {
+            squareLiveWindows[index] += (short) delta;
+
+            if (squareLiveWindows[index] == 0) {
+                Bitboard.set(dead, index);
+            } else {
+                Bitboard.clear(dead, index);
+            }
+        }
+    }
+
+    /**
+     * Sets the live counts of an empty board, where every window through a square is live
+     */
+    private void resetLiveSquares() {
+        Arrays.fill(dead, 0L);
+        for (int index = 0; index < size * size; index++) {
+            squareLiveWindows[index] = (short) (windows.squareStart[index + 1] - windows.squareStart[index]);
+            if (squareLiveWindows[index] == 0) {
+                Bitboard.set(dead, index);
+            }
+        }
+    }
+
+    /**
+     * Adds or removes a stone from the lines through its square
+     *
+     * @param side  The side of the stone
+     * @param index The square of the stone
+     */
+    private void toggleLines(int side, int index) {
+        final long[] own = side == X_SIDE ? xLines : oLines;
+        final int squares = size * size;
+        for (int direction = 0; direction < Lines.DIRECTIONS; direction++) {
+            own[lines.line[direction * squares + index]] ^= 1L << lines.bit[direction * squares + index];
+        }
+    }
+
+    /**
+     * Removes a stone from the window counts, this is the exact inverse of {@link #addStone(int, int)}
+     */
+    private void removeStone(int side, int index) {
+        final byte[] own = side == X_SIDE ? xWindowStones : oWindowStones;
+        final byte[] other = side == X_SIDE ? oWindowStones : xWindowStones;
+        final int[] ownLive = liveWindows[side];
+        final int[] otherLive = liveWindows[side ^ 3];
+        final int end = windows.squareStart[index + 1];
+
+        centrality[side] -= centerBonus[index];
+        toggleLines(side, index);
+        if (accumulator != null) {
+            accumulator.remove(side, index);
+        }
+
+        for (int i = windows.squareStart[index]; i < end; i++) {
+            final int window = windows.squareWindows[i];
+            final int ownStones = --own[window];
+            final int otherStones = other[window];
+
+            if (otherStones == 0) {
+                ownLive[ownStones + 1]--;
+                ownLive[ownStones]++;
+            }
+
+            if (ownStones == 0) {
+                otherLive[otherStones]++;
+                liveWindowCount[side ^ 3]++;
+
+                if (otherStones > 0) {
+                    updateLiveSquares(window, 1);
+                }
+            }
+        }
+    }
+
     public void updateTurn() {
         sideToMove ^= 3;
+        for (int transform = 0; transform < keyCount; transform++) {
+            keys[transform] ^= Zobrist.SIDE_KEY;
+        }
+    }
+
+    /**
+     * Adds or removes a stone from all keys, every key sees the stone on its transformed square
+     */
+    private void updateKeys(int side, int index) {
+        final int[][] squares = symmetry.squares;
+        for (int transform = 0; transform < keyCount; transform++) {
+            keys[transform] ^= Zobrist.piece(side, squares[transform][index]);
+        }
+    }
+
+    /**
+     * Starts or stops maintaining the keys of the rotations and mirror images.
+     * This costs 7 more key updates per move, so it is off by default
+     *
+     * @param enabled If the symmetric keys are maintained
+     */
+    public void setSymmetryTracking(boolean enabled) {
+        if (enabled == (keyCount == Symmetry.TRANSFORMS)) {
+            return;
+        }
+
+        keyCount = enabled ? Symmetry.TRANSFORMS : 1;
+        if (!enabled) {
+            return;
+        }
+
+        // Compute the symmetric keys of the current position from scratch
+        final long sideKey = sideToMove == O_SIDE ? Zobrist.SIDE_KEY : 0;
+        for (int transform = 1; transform < Symmetry.TRANSFORMS; transform++) {
+            long key = sideKey;
+            for (int index = 0; index < size * size; index++) {
+                if (Bitboard.isSet(xBitboard, index)) {
+                    key ^= Zobrist.piece(X_SIDE, symmetry.squares[transform][index]);
+                } else if (Bitboard.isSet(oBitboard, index)) {
+                    key ^= Zobrist.piece(O_SIDE, symmetry.squares[transform][index]);
+                }
+            }
+            keys[transform] = key;
+        }
+    }
+
+    public boolean isSymmetryTracking() {
+        return keyCount == Symmetry.TRANSFORMS;
     }
 
     public boolean hasRowColumnWin(int side) {
@@ -75,23 +458,15 @@ public class Board {
             throw new IllegalArgumentException("NO_SIDE was passed to hasRowColumnWin!");
         }
 
-        final Bitboard[] bb = (side == X_SIDE) ? xBitboards : oBitboards;
-
-        for (int i = 0; i < size; i++) {
-            int runCol = 0; // consecutive in column i
-            int runRow = 0; // consecutive in row i
+        return hasRowColumnRun(side, winningSize);
+    }
 
-            for (int j = 0; j < size; j++) {
-                // column i (vary y=j)
-                runCol = bb[i].isSet(j) ? runCol + 1 : 0;
-                if (runCol >= winningSize) return true;
+    private boolean hasRowColumnRun(int side, int length) {
+        final long[] bb = (side == X_SIDE) ? xBitboard : oBitboard;
+        final long[][] starts = getRunStarts(length);
 
-                // row i (vary x=j)
-                runRow = bb[j].isSet(i) ? runRow + 1 : 0;
-                if (runRow >= winningSize) return true;
-            }
-        }
-        return false;
+        // Runs along a column (y increases) and along a row (x increases)
+        return hasRun(bb, starts[0], 1, length) || hasRun(bb, starts[1], size, length);
     }
 
     public void perf(int depth) {
@@ -113,29 +488,20 @@ public class Board {
     }
 
     public boolean isGameOver() {
-        if (hasWin(X_SIDE)) {
-            return true;
-        }
-        if (hasWin(O_SIDE)) {
+        if (winners[size * size - freeSquares] != NO_SIDE) {
             return true;
         }
         return isFull();
     }
 
+    /**
+     * Checks if the side has a win. The result is tracked in makeMove, so this is a lookup
+     *
+     * @param side The side to check
+     * @return If the side has a win
+     */
     public boolean hasWin(int side) {
-        return hasRowColumnWin(side) || hasDiagonalWin(side);
-    }
-
-    private boolean hasRunOnDiag(Bitboard[] bb, int x0, int y0, int dy, int n, int k) {
-        int run = 0;
-        int x = x0, y = y0;
-        while (x >= 0 && x < n && y >= 0 && y < n) {
-            run = bb[x].isSet(y) ? run + 1 : 0;
-            if (run >= k) return true;
-            x += 1;
-            y += dy;
-        }
-        return false;
+        return (winners[size * size - freeSquares] & side) != 0;
     }
 
     public boolean hasDiagonalWin(int side) {
@@ -143,128 +509,503 @@ public class Board {
             throw new IllegalArgumentException("NO_SIDE was passed to diagonal win!");
         }
 
-        final Bitboard[] bb = (side == X_SIDE) ? xBitboards : oBitboards;
-        final int n = this.size;
-        final int k = this.winningSize;
+        return hasDiagonalRun(side, winningSize);
+    }
+
+    private boolean hasDiagonalRun(int side, int length) {
+        final long[] bb = (side == X_SIDE) ? xBitboard : oBitboard;
+        final long[][] starts = getRunStarts(length);
+
+        // Direction: \ (x and y increase) and / (x increases, y decreases)
+        return hasRun(bb, starts[2], size + 1, length) || hasRun(bb, starts[3], size - 1, length);
+    }
+
+    /**
+     * Checks whether the plane contains a run of stones in one direction.
+     * Every square of the plane is checked at once by and-ing the plane with itself shifted by the stride.
+     *
+     * @param bb     The plane of the side
+     * @param starts All squares from which a run in this direction fits on the board
+     * @param stride The index distance between two neighbouring squares of the run
+     * @param length The length of the run
+     * @return If a run was found
+     */
+    private boolean hasRun(long[] bb, long[] starts, int stride, int length) {
+        for (int word = 0; word < bb.length; word++) {
+            long run = bb[word] & starts[word];
+            final int base = word << 6;
 
-        // Direction: \ (down-right)
-        // Start along top row (y=0, x in [0..n-k]) and left column (x=0, y in [1..n-k])
-        for (int x = 0; x <= n - k; x++) {
-            if (hasRunOnDiag(bb, x, 0, 1, n, k)) return true;
+            for (int step = 1; step < length && run != 0; step++) {
+                run &= Bitboard.window(bb, base + step * stride);
+            }
+
+            if (run != 0) {
+                return true;
+            }
         }
-        for (int y = 1; y <= n - k; y++) {
-            if (hasRunOnDiag(bb, 0, y, 1, n, k)) return true;
+        return false;
+    }
+
+    /**
+     * Gets the start squares of every possible run for the given length,
+     * one plane per direction in the order column, row, \, /
+     *
+     * @param length The length of the run
+     * @return The start planes
+     */
+    private long[][] getRunStarts(int length) {
+        long[][] starts = runStarts[length];
+        if (starts != null) {
+            return starts;
         }
 
-        // Direction: / (down-left)
-        // Start along bottom row (y=n-1, x in [0..n-k]) and left column (x=0, y in [k-1..n-2])
-        for (int x = 0; x <= n - k; x++) {
-            if (hasRunOnDiag(bb, x, n - 1, -1, n, k)) return true;
+        starts = new long[4][];
+        for (int direction = 0; direction < 4; direction++) {
+            starts[direction] = Bitboard.create(size * size);
         }
-        for (int y = n - 2; y >= k - 1; y--) { // ensure diagonal length >= k
-            if (hasRunOnDiag(bb, 0, y, -1, n, k)) return true;
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                final int index = x * size + y;
+                final boolean fitsX = x + length <= size;
+                if (y + length <= size) {
+                    Bitboard.set(starts[0], index);
+                }
+                if (fitsX) {
+                    Bitboard.set(starts[1], index);
+                }
+                if (fitsX && y + length <= size) {
+                    Bitboard.set(starts[2], index);
+                }
+                if (fitsX && y - length + 1 >= 0) {
+                    Bitboard.set(starts[3], index);
+                }
+            }
         }
 
-        return false;
+        runStarts[length] = starts;
+        return starts;
     }
 
     public int getSize() {
         return size;
     }
 
+    /**
+     * @return The amount of stones in a row that are needed for a win
+     */
+    public int getWinningSize() {
+        return winningSize;
+    }
+
     public boolean get(int i, int j, int side) {
         if (side == X_SIDE) {
-            return xBitboards[i].isSet(j);
+            return Bitboard.isSet(xBitboard, i * size + j);
         } else if (side == O_SIDE) {
-            return oBitboards[i].isSet(j);
+            return Bitboard.isSet(oBitboard, i * size + j);
         } else {
             throw new RuntimeException("NO_SIDE was passed to get function!");
         }
     }
 
     public boolean isEmpty(int x, int y) {
-        return !occupied[x].isSet(y);
+        return !Bitboard.isSet(occupied, x * size + y);
     }
 
     public void unmakeNullMove() {
         updateTurn();
     }
 
+    /**
+     * Checks if the side has a run that is shorter than a win, without changing the board
+     *
+     * @param offset How much shorter than a win the run is
+     * @param side   The side to check
+     * @return If the side has such a run
+     */
     public boolean hasWinWithFurtherOffset(int offset, byte side) {
+        final int length = winningSize - offset;
+        return hasRowColumnRun(side, length) || hasDiagonalRun(side, length);
+    }
 
-        int tempOffset = this.offset;
-        this.offset += offset;
-        this.winningSize = this.size - this.offset;
+    /**
+     * Gets the windows of a side, which are all lines of winningSize squares without an opposing stone.
+     * The returned array must not be modified
+     *
+     * @param side The side
+     * @return The amount of live windows, indexed by the amount of own stones in them
+     */
+    public int[] getLiveWindows(int side) {
+        return liveWindows[side];
+    }
 
-        if (hasRowColumnWin(side) || hasDiagonalWin(side)) {
-            this.offset = tempOffset;
-            this.winningSize = this.size - this.offset;
-            return true;
+    /**
+     * Collects the empty squares of all live windows of a side that contain exactly the given amount of own stones.
+     * With winningSize - 1 stones these are the squares that win right away,
+     * with winningSize - 2 stones these are the squares that create such a threat
+     *
+     * @param side   The side
+     * @param stones The amount of own stones in the windows
+     * @param buffer The buffer for the encoded moves
+     * @param start  The amount of moves that are already in the buffer, these are kept and not collected twice
+     * @return The amount of moves in the buffer
+     */
+    public int getThreatMoves(int side, int stones, int[] buffer, int start) {
+        if (start == 0) {
+            collectId++;
         }
 
-        this.offset = tempOffset;
-        this.winningSize = this.size - this.offset;
-        return false;
+        if (stones < 0 || stones >= winningSize || liveWindows[side][stones] == 0) {
+            return start;
+        }
+
+        final byte[] own = side == X_SIDE ? xWindowStones : oWindowStones;
+        final byte[] other = side == X_SIDE ? oWindowStones : xWindowStones;
+        int count = start;
+
+        for (int window = 0; window < windows.count; window++) {
+            if (own[window] != stones || other[window] != 0) {
+                continue;
+            }
+
+            for (int i = 0, index = windows.firstSquare[window]; i < winningSize; i++, index += windows.stride[window]) {
+                if (collected[index] != collectId && !Bitboard.isSet(occupied, index)) {
+                    collected[index] = collectId;
+                    buffer[count++] = Move.encode(index / size, index % size);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param side The side
+     * @return The amount of windows without a stone of the other side, in which the side can still complete a line
+     */
+    public int getLiveWindowCount(int side) {
+        return liveWindowCount[side];
+    }
+
+    /**
+     * Checks if no side can complete a line anymore, so the game is a draw even though the board isn't full
+     *
+     * @return If every window contains stones of both sides
+     */
+    public boolean isDeadDraw() {
+        return liveWindowCount[X_SIDE] == 0 && liveWindowCount[O_SIDE] == 0;
+    }
+
+    /**
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return If a window through the square can still be completed by a side
+     */
+    public boolean isLiveSquare(int x, int y) {
+        return !Bitboard.isSet(dead, x * size + y);
+    }
+
+    /**
+     * Reads the whole line through a square
+     *
+     * @param side      The side
+     * @param move      The encoded square
+     * @param direction The direction below {@link #DIRECTIONS}, in the order column, row, \, /
+     * @return The stones of the side on the line, the square itself is bit {@link #getLineBit(int, int)}
+     */
+    public long getLine(int side, int move, int direction) {
+        final int at = direction * size * size + Move.getX(move) * size + Move.getY(move);
+        return (side == X_SIDE ? xLines : oLines)[lines.line[at]];
+    }
+
+    /**
+     * @param move      The encoded square
+     * @param direction The direction below {@link #DIRECTIONS}
+     * @return The bit of the square in the line through it
+     */
+    public int getLineBit(int move, int direction) {
+        return lines.bit[direction * size * size + Move.getX(move) * size + Move.getY(move)];
+    }
+
+    /**
+     * Classifies the threat a stone of the side on an empty square creates in one direction, see {@link Patterns}
+     *
+     * @param side      The side
+     * @param move      The encoded square
+     * @param direction The direction below {@link #DIRECTIONS}
+     * @return The pattern, NONE if the square is occupied or the win length has no pattern table
+     */
+    public int getPattern(int side, int move, int direction) {
+        final int index = Move.getX(move) * size + Move.getY(move);
+        if (patterns == null || Bitboard.isSet(occupied, index)) {
+            return Patterns.NONE;
+        }
+
+        final int at = direction * size * size + index;
+        final int line = lines.line[at];
+        final int shift = lines.bit[at] - (winningSize - 1);
+        final int segment = (1 << patterns.getLength()) - 1;
+
+        // The segment around the square, the squares outside the board block like stones of the other side
+        final long[] own = side == X_SIDE ? xLines : oLines;
+        final long[] other = side == X_SIDE ? oLines : xLines;
+        final int onBoard = (int) shift(lines.mask[line], shift) & segment;
+        final int ownBits = (int) shift(own[line], shift) & segment;
+        final int otherBits = ((int) shift(other[line], shift) & segment) | (segment & ~onBoard);
+
+        return patterns.get(ownBits, otherBits);
+    }
+
+    /**
+     * Shifts a line so that the bit at the shift becomes bit 0
+     */
+    private static long shift(long line, int shift) {
+        return shift >= 0 ? line >>> shift : line << -shift;
+    }
+
+    /**
+     * @param side The side
+     * @return The summed up center bonus of all stones of the side
+     */
+    public int getCentrality(int side) {
+        return centrality[side];
     }
 
     public void reset() {
-        this.xBitboards = new Bitboard[size];
-        for (int i = 0; i < xBitboards.length; i++) {
-            xBitboards[i] = new Bitboard();
+        // Clear the planes in place instead of reallocating them
+        Arrays.fill(xBitboard, 0L);
+        Arrays.fill(oBitboard, 0L);
+        Arrays.fill(occupied, 0L);
+
+        this.freeSquares = this.size * this.size;
+        this.sideToMove = X_SIDE;
+        this.winners[0] = NO_SIDE;
+        Arrays.fill(keys, 0L);
+
+        Arrays.fill(nearCount, (short) 0);
+        Arrays.fill(near, 0L);
+        Arrays.fill(xWindowStones, (byte) 0);
+        Arrays.fill(oWindowStones, (byte) 0);
+        for (int side = X_SIDE; side <= O_SIDE; side++) {
+            Arrays.fill(liveWindows[side], 0);
+            liveWindows[side][0] = windows.count;
+            liveWindowCount[side] = windows.count;
+            centrality[side] = 0;
         }
+        resetLiveSquares();
+        Arrays.fill(xLines, 0L);
+        Arrays.fill(oLines, 0L);
+        if (accumulator != null) {
+            accumulator.clear();
+        }
+    }
 
-        this.oBitboards = new Bitboard[size];
-        for (int i = 0; i < oBitboards.length; i++) {
-            oBitboards[i] = new Bitboard();
+    /**
+     * Attaches the first layer of an evaluation network, which is kept up to date with every stone from now on
+     *
+     * @param accumulator The accumulator, which is filled with the current stones, or null to detach it
+     */
+    public void setAccumulator(Accumulator accumulator) {
+        this.accumulator = accumulator;
+        if (accumulator == null) {
+            return;
         }
 
-        this.occupied = new Bitboard[size];
-        for (int i = 0; i < occupied.length; i++) {
-            occupied[i] = new Bitboard();
+        accumulator.clear();
+        for (int index = 0; index < size * size; index++) {
+            if (Bitboard.isSet(xBitboard, index)) {
+                accumulator.add(X_SIDE, index);
+            } else if (Bitboard.isSet(oBitboard, index)) {
+                accumulator.add(O_SIDE, index);
+            }
         }
+    }
 
-        this.sideToMove = X_SIDE;
+    public Accumulator getAccumulator() {
+        return accumulator;
     }
 
     public boolean isFull() {
         return freeSquares == 0;
     }
 
-    public int getKey() {
-        long hash = 0;
+    /**
+     * Gets the Zobrist key of the position. It is updated in makeMove, unmakeMove and on every turn change
+     *
+     * @return The 64-bit key
+     */
+    public long getKey() {
+        return keys[Symmetry.IDENTITY];
+    }
 
-        for (int i = 0; i < size; i++) {
-            hash = 27644437L * hash + xBitboards[i].getBits();
-            hash = 27644437L * hash + oBitboards[i].getBits();
+    /**
+     * Gets the key of a rotation or mirror image of the position, which needs {@link #setSymmetryTracking(boolean)}
+     *
+     * @param transform The transform, see {@link Symmetry}
+     * @return The 64-bit key of the transformed position
+     */
+    public long getKey(int transform) {
+        if (transform >= keyCount) {
+            throw new IllegalStateException("The symmetric keys are not tracked, see setSymmetryTracking");
         }
+        return keys[transform];
+    }
 
-        return Long.hashCode(hash);
+    /**
+     * Gets the transform whose key is the smallest. All rotations and mirror images of a position
+     * have the same smallest key, so it identifies the position independent of its orientation
+     *
+     * @return The transform, the first one if several keys are equal. Without symmetry tracking this is the identity
+     */
+    public int getCanonicalTransform() {
+        int best = Symmetry.IDENTITY;
+        for (int transform = 1; transform < keyCount; transform++) {
+            if (keys[transform] < keys[best]) {
+                best = transform;
+            }
+        }
+        return best;
     }
 
-    public Move[] generateLegalMoves() {
-        Move[] legalMoves = new Move[freeSquares];
+    /**
+     * @return The smallest key of all rotations and mirror images of the position
+     */
+    public long getCanonicalKey() {
+        return keys[getCanonicalTransform()];
+    }
 
-        int counter = 0;
-        for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.size; j++) {
-                if (!occupied[i].isSet(j)) {
-                    legalMoves[counter] = new Move(i, j);
-                    counter++;
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Finds the rotations and mirror images that map the position onto itself, e.g. all 8 on an empty board
+     *
+     * @return A bit mask with bit t set if transform t leaves the stones unchanged, bit 0 is always set
+     */
+    public int getInvariantTransforms() {
+        int transforms = 1;
+        for (int transform = 1; transform < Symmetry.TRANSFORMS; transform++) {
+            if (isInvariant(symmetry.squares[transform])) {
+                transforms |= 1 << transform;
+            }
+        }
+        return transforms;
+    }
+
+    /**
+     * @param squares The squares of a transform
+     * @return If every stone is mapped onto a stone of the same side
+     */
+    private boolean isInvariant(int[] squares) {
+        for (int i = 0; i < occupied.length; i++) {
+            for (long bits = occupied[i]; bits != 0; bits &= bits - 1) {
+                final int index = (i << 6) + Long.numberOfTrailingZeros(bits);
+                final long[] own = Bitboard.isSet(xBitboard, index) ? xBitboard : oBitboard;
+                if (!Bitboard.isSet(own, squares[index])) {
+                    return false;
                 }
             }
         }
+        return true;
+    }
+
+    public Move[] generateLegalMoves() {
+        int[] buffer = new int[freeSquares];
+        int count = generateLegalMoves(buffer);
+
+        Move[] legalMoves = new Move[count];
+        for (int i = 0; i < count; i++) {
+            legalMoves[i] = new Move((short) buffer[i]);
+        }
 
         return legalMoves;
     }
 
+    /**
+     * Writes the candidate moves as encoded moves into the buffer, without allocating anything.
+     * With a radius, these are the empty squares near a stone. If there is no such square,
+     * e.g. on an empty board, every empty square is a candidate
+     *
+     * @param buffer The buffer, which needs room for at least freeSquares moves
+     * @return The amount of moves that were written
+     */
+    public int generateLegalMoves(int[] buffer) {
+        if (radius > 0) {
+            final int count = generateMoves(buffer, near, null);
+            if (count > 0) {
+                return count;
+            }
+        }
+        return generateMoves(buffer, null, null);
+    }
+
+    /**
+     * Writes the candidate moves without the dead squares, see {@link #isLiveSquare(int, int)}.
+     * A stone on a dead square is like passing, and an extra stone never hurts in this game,
+     * so the search doesn't need these moves. If no empty square is live, every empty square is returned
+     *
+     * @param buffer The buffer, which needs room for at least freeSquares moves
+     * @return The amount of moves that were written
+     */
+    public int generateLiveMoves(int[] buffer) {
+        if (radius > 0) {
+            final int count = generateMoves(buffer, near, dead);
+            if (count > 0) {
+                return count;
+            }
+        }
+
+        final int count = generateMoves(buffer, null, dead);
+        return count > 0 ? count : generateMoves(buffer, null, null);
+    }
+
+    /**
+     * Writes the empty squares into the buffer
+     *
+     * @param buffer  The buffer
+     * @param mask    Only squares in this plane are written, null for every square
+     * @param exclude The squares in this plane are skipped, null to skip none
+     * @return The amount of moves that were written
+     */
+    private int generateMoves(int[] buffer, long[] mask, long[] exclude) {
+        final int squares = size * size;
+        int count = 0;
+
+        for (int word = 0; word < occupied.length; word++) {
+            long free = ~occupied[word];
+            if (mask != null) {
+                free &= mask[word];
+            }
+            if (exclude != null) {
+                free &= ~exclude[word];
+            }
+
+            // The last word can contain bits past the last square
+            if (word == occupied.length - 1 && (squares & 63) != 0) {
+                free &= (1L << squares) - 1;
+            }
+
+            while (free != 0) {
+                final int index = (word << 6) + Long.numberOfTrailingZeros(free);
+                final int x = index / size;
+                buffer[count++] = Move.encode(x, index - x * size);
+                free &= free - 1;
+            }
+        }
+
+        return count;
+    }
+
 
     public String getBoardNotation() {
         StringBuilder stringBuilder = new StringBuilder();
+        int index = 0;
         for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.size; j++) {
-                if (xBitboards[i].isSet(j)) {
+            for (int j = 0; j < this.size; j++, index++) {
+                if (Bitboard.isSet(xBitboard, index)) {
                     stringBuilder.append(X_SIDE);
-                } else if (oBitboards[i].isSet(j)) {
+                } else if (Bitboard.isSet(oBitboard, index)) {
                     stringBuilder.append(O_SIDE);
                 } else {
                     stringBuilder.append(NO_SIDE);
@@ -284,16 +1025,20 @@ public class Board {
 
     public void setBoardNotation(String boardNotation) {
         reset();
-        this.freeSquares = this.size * this.size;
 
         // Determine the side to move
         if (boardNotation.charAt(boardNotation.length() - 1) == 'x') {
             this.sideToMove = X_SIDE;
         } else {
             this.sideToMove = O_SIDE;
+            for (int transform = 0; transform < keyCount; transform++) {
+                keys[transform] ^= Zobrist.SIDE_KEY;
+            }
         }
 
-        // Parse the board notation
+        // Parse the board notation, the position was not built move by move,
+        // so every stone can complete a window
+        byte winner = NO_SIDE;
         char[] input = boardNotation.toCharArray();
         int inputIndex = 0;
         for (int i = 0; i < this.size; i++) {
@@ -301,27 +1046,38 @@ public class Board {
                 char token = input[inputIndex];
                 switch (token) {
                     case '1':
-                        xBitboards[i].set(j);
-                        occupied[i].set(j);
+                        Bitboard.set(xBitboard, inputIndex);
+                        Bitboard.set(occupied, inputIndex);
+                        updateKeys(X_SIDE, inputIndex);
+                        if (addStone(X_SIDE, inputIndex)) {
+                            winner |= X_SIDE;
+                        }
                         this.freeSquares--;
                         break;
                     case '2':
-                        oBitboards[i].set(j);
-                        occupied[i].set(j);
+                        Bitboard.set(oBitboard, inputIndex);
+                        Bitboard.set(occupied, inputIndex);
+                        updateKeys(O_SIDE, inputIndex);
+                        if (addStone(O_SIDE, inputIndex)) {
+                            winner |= O_SIDE;
+                        }
                         this.freeSquares--;
                         break;
                 }
                 inputIndex++;
             }
         }
+
+        this.winners[this.size * this.size - this.freeSquares] = winner;
+
+        rebuildNeighbourhood();
     }
 
-    private void appendLayer(StringBuilder sb, String title, Bitboard[] layer, int size) {
+    private void appendLayer(StringBuilder sb, String title, long[] layer, int size) {
         sb.append(title).append('\n');
         for (int x = 0; x < size; x++) {
-            Bitboard col = layer[x];
             for (int y = 0; y < size; y++) {
-                sb.append(col.isSet(y) ? '1' : '0').append(' ');
+                sb.append(Bitboard.isSet(layer, x * size + y) ? '1' : '0').append(' ');
             }
             sb.append('\n');
         }
@@ -333,8 +1089,8 @@ public class Board {
         int approx = 3 * (size * (2 * size + 2) + 2) + 32;
         StringBuilder sb = new StringBuilder(approx);
 
-        appendLayer(sb, "X Bitboard:", xBitboards, size);
-        appendLayer(sb, "O Bitboard:", oBitboards, size);
+        appendLayer(sb, "X Bitboard:", xBitboard, size);
+        appendLayer(sb, "O Bitboard:", oBitboard, size);
         appendLayer(sb, "Occupied", occupied, size);
 
         return sb.toString();
@@ -344,11 +1100,12 @@ public class Board {
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
+        int index = 0;
         for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.size; j++) {
-                if (xBitboards[i].isSet(j)) {
+            for (int j = 0; j < this.size; j++, index++) {
+                if (Bitboard.isSet(xBitboard, index)) {
                     stringBuilder.append("X");
-                } else if (oBitboards[i].isSet(j)) {
+                } else if (Bitboard.isSet(oBitboard, index)) {
                     stringBuilder.append("O");
                 } else {
                     stringBuilder.append("-");
@@ -0,0 +1,49 @@
+package src.Engine.Movegen;
+
+/**
+ * All full lines of a board in the directions column, row, \ and /, with the same directions as {@link Windows}.
+ * A board is at most 63 squares wide, so every line fits into one long, where bit i is the i-th square of the line.
+ * The table only depends on the board size, so copies of a board share it.
+ */
+final class Lines {
+    static final int DIRECTIONS = 4;
+
+    // The amount of lines
+    final int count;
+    // The line and the bit of square i in direction d are line[d * squares + i] and bit[d * squares + i]
+    final int[] line;
+    final int[] bit;
+    // All squares of line l as bits
+    final long[] mask;
+
+    /**
+     * @param size The size of the board
+     */
+    Lines(int size) {
+        final int squares = size * size;
+        this.count = 2 * size + 2 * (2 * size - 1);
+        this.line = new int[DIRECTIONS * squares];
+        this.bit = new int[DIRECTIONS * squares];
+        this.mask = new long[count];
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                final int index = x * size + y;
+
+                // Direction 0 is the column (0, 1), which runs along y, direction 1 the row (1, 0) along x
+                set(0, squares, index, x, y);
+                set(1, squares, index, size + y, x);
+
+                // Both diagonals start at the first row or column they touch
+                set(2, squares, index, 2 * size + (y - x + size - 1), Math.min(x, y));
+                set(3, squares, index, 2 * size + (2 * size - 1) + (x + y), x - Math.max(0, x + y - (size - 1)));
+            }
+        }
+    }
+
+    private void set(int direction, int squares, int index, int line, int bit) {
+        this.line[direction * squares + index] = line;
+        this.bit[direction * squares + index] = bit;
+        this.mask[line] |= 1L << bit;
+    }
+}
@@ -1,7 +1,10 @@
 package src.Engine.Movegen;
 
 public class Move {
-    public static final Move NULL_MOVE = new Move((short) 0b0000000100000001);
+    // Primitive encoding of the null move. The x coordinate 0xFF is never a legal square,
+    // so this can't collide with a real move
+    public static final int NONE = -1;
+    public static final Move NULL_MOVE = new Move((short) NONE);
 
     // High 8 bits are the x coordinate
     // Low 8 bits are the y coordinate
@@ -52,6 +55,33 @@ public class Move {
         return moveData;
     }
 
+    /**
+     * Encodes a move into the same format as {@link #getMoveData()}
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return The encoded move
+     */
+    public static int encode(int x, int y) {
+        return (x << 8) | y;
+    }
+
+    /**
+     * @param move An encoded move
+     * @return The x coordinate of the encoded move
+     */
+    public static int getX(int move) {
+        return move >> 8;
+    }
+
+    /**
+     * @param move An encoded move
+     * @return The y coordinate of the encoded move
+     */
+    public static int getY(int move) {
+        return move & 0xFF;
+    }
+
     public boolean equals(Move other) {
         return (this.x() == other.x()) && (this.y() == other.y());
     }
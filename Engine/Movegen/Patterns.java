@@ -0,0 +1,144 @@
+package src.Engine.Movegen;
+
+/**
+ * Classifies what a stone creates in one line. A segment of 2 * winningSize - 1 squares around an empty square
+ * holds every window through the square, so the own and the other stones of the segment decide the threat
+ * the square creates in that line. The result of every segment is precomputed, so a lookup replaces a scan
+ * of the squares. The table only depends on the win length, so all boards share it
+ */
+public final class Patterns {
+    public static final int NONE = 0;
+    // A window that needs winningSize - 3 more stones after the move
+    public static final int TWO = 1;
+    // A window that needs two more stones
+    public static final int THREE = 2;
+    // One more stone makes an open four
+    public static final int OPEN_THREE = 3;
+    // One square completes a line
+    public static final int FOUR = 4;
+    // Two different squares complete a line, only one of them can be blocked
+    public static final int OPEN_FOUR = 5;
+    // The move completes a line
+    public static final int FIVE = 6;
+
+    // The table has 4^(2 * winningSize - 1) entries, beyond this it gets too large
+    public static final int MAX_WINNING_SIZE = 6;
+
+    private static final Patterns[] CACHE = new Patterns[MAX_WINNING_SIZE + 1];
+
+    private final int winningSize;
+    private final int length;
+    // The pattern of every segment, indexed by the own stones in the high and the other stones in the low bits
+    private final byte[] table;
+
+    private Patterns(int winningSize) {
+        this.winningSize = winningSize;
+        this.length = 2 * winningSize - 1;
+        this.table = new byte[1 << (2 * length)];
+
+        final int all = (1 << length) - 1;
+        final int center = 1 << (winningSize - 1);
+
+        // Every own and other stones without a common square and with an empty center
+        for (int own = 0; own <= all; own++) {
+            if ((own & center) != 0) {
+                continue;
+            }
+
+            final int free = all & ~own & ~center;
+            for (int other = free; ; other = (other - 1) & free) {
+                table[(own << length) | other] = (byte) classify(own | center, other);
+                if (other == 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the table of a win length, which is only created once
+     *
+     * @param winningSize The amount of stones in a row that are needed for a win
+     * @return The table, or null if the win length is too large for a table
+     */
+    public static synchronized Patterns of(int winningSize) {
+        if (winningSize < 1 || winningSize > MAX_WINNING_SIZE) {
+            return null;
+        }
+        if (CACHE[winningSize] == null) {
+            CACHE[winningSize] = new Patterns(winningSize);
+        }
+        return CACHE[winningSize];
+    }
+
+    /**
+     * Looks up a segment, bit winningSize - 1 is the empty square in the center.
+     * Squares outside the board have to be passed as other stones
+     *
+     * @param own   The own stones of the segment
+     * @param other The stones of the other side of the segment
+     * @return The pattern that an own stone on the center creates
+     */
+    public int get(int own, int other) {
+        return table[(own << length) | other];
+    }
+
+    /**
+     * @return The amount of squares of a segment
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Classifies a segment after the own stone was placed on the center
+     */
+    private int classify(int own, int other) {
+        int most = 0;
+        for (int start = 0; start < winningSize; start++) {
+            final int window = ((1 << winningSize) - 1) << start;
+            if ((window & other) == 0) {
+                most = Math.max(most, Integer.bitCount(own & window));
+            }
+        }
+
+        if (most == winningSize) {
+            return FIVE;
+        }
+
+        final int completions = Integer.bitCount(completions(own, other));
+        if (completions >= 2) {
+            return OPEN_FOUR;
+        }
+        if (completions == 1) {
+            return FOUR;
+        }
+
+        // Look for a second stone that makes an open four
+        final int empty = ((1 << length) - 1) & ~own & ~other;
+        for (int bits = empty; bits != 0; bits &= bits - 1) {
+            if (Integer.bitCount(completions(own | (bits & -bits), other)) >= 2) {
+                return OPEN_THREE;
+            }
+        }
+
+        if (most == winningSize - 2) {
+            return THREE;
+        }
+        return most == winningSize - 3 && most > 1 ? TWO : NONE;
+    }
+
+    /**
+     * @return The empty squares that complete a window, as bits
+     */
+    private int completions(int own, int other) {
+        int squares = 0;
+        for (int start = 0; start < winningSize; start++) {
+            final int window = ((1 << winningSize) - 1) << start;
+            if ((window & other) == 0 && Integer.bitCount(own & window) == winningSize - 1) {
+                squares |= window & ~own;
+            }
+        }
+        return squares;
+    }
+}
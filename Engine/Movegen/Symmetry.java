@@ -0,0 +1,119 @@
+package src.Engine.Movegen;
+
+/**
+ * The 8 symmetries of a square board: the rotations by 0, 90, 180 and 270 degrees (transforms 0 - 3)
+ * and the same rotations followed by a mirror image (transforms 4 - 7).
+ * A position and its transformed copies have the same value, so they can share table entries.
+ * The tables only depend on the board size, so all boards of a size share them
+ */
+public final class Symmetry {
+    public static final int TRANSFORMS = 8;
+    public static final int IDENTITY = 0;
+
+    private static final Symmetry[] CACHE = new Symmetry[Board.MAX_SIZE + 1];
+
+    private final int size;
+    // The square that square i is moved to, indexed by transform and then by square
+    final int[][] squares;
+
+    private Symmetry(int size) {
+        this.size = size;
+        this.squares = new int[TRANSFORMS][size * size];
+
+        for (int transform = 0; transform < TRANSFORMS; transform++) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    int tx = x, ty = y;
+                    for (int r = 0; r < transform % 4; r++) {
+                        final int rotated = tx;
+                        tx = ty;
+                        ty = size - 1 - rotated;
+                    }
+                    if (transform >= 4) {
+                        tx = size - 1 - tx;
+                    }
+                    squares[transform][x * size + y] = tx * size + ty;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the symmetries of a board size, which are only created once
+     *
+     * @param size The size of the board
+     * @return The symmetries
+     */
+    public static synchronized Symmetry of(int size) {
+        if (CACHE[size] == null) {
+            CACHE[size] = new Symmetry(size);
+        }
+        return CACHE[size];
+    }
+
+    /**
+     * @param transform The transform
+     * @return The transform that undoes it. Mirror images undo themselves
+     */
+    public static int inverse(int transform) {
+        return transform < 4 ? (4 - transform) % 4 : transform;
+    }
+
+    /**
+     * @param transform The transform
+     * @param square    The square index x * size + y
+     * @return The square index after the transform
+     */
+    public int transformSquare(int transform, int square) {
+        return squares[transform][square];
+    }
+
+    /**
+     * Maps a move of a position to the same move in the transformed position
+     *
+     * @param transform The transform
+     * @param move      The encoded move, {@link Move#NONE} stays unchanged
+     * @return The encoded move after the transform
+     */
+    public int transformMove(int transform, int move) {
+        if (move == Move.NONE || transform == IDENTITY) {
+            return move;
+        }
+
+        final int square = squares[transform][Move.getX(move) * size + Move.getY(move)];
+        return Move.encode(square / size, square % size);
+    }
+
+    /**
+     * Maps a move of the transformed position back to the original position
+     *
+     * @param transform The transform that created the transformed position
+     * @param move      The encoded move, {@link Move#NONE} stays unchanged
+     * @return The encoded move before the transform
+     */
+    public int untransformMove(int transform, int move) {
+        return transformMove(inverse(transform), move);
+    }
+
+    /**
+     * Checks if a move is the representative of its equivalent moves in a symmetric position.
+     * The transforms that leave the position unchanged map a move to equivalent moves,
+     * the one with the smallest encoding represents them
+     *
+     * @param transforms The transforms that leave the position unchanged as a bit mask, see {@link Board#getInvariantTransforms()}
+     * @param move       The encoded move
+     * @return If no equivalent move has a smaller encoding
+     */
+    public boolean isRepresentative(int transforms, int move) {
+        for (int bits = transforms & ~1; bits != 0; bits &= bits - 1) {
+            if (transformMove(Integer.numberOfTrailingZeros(bits), move) < move) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,79 @@
+package src.Engine.Movegen;
+
+import java.util.Arrays;
+
+/**
+ * All lines of a fixed length on a board, e.g. every five squares in a row on a 15x15 board with a win length of 5.
+ * The table only depends on the board size and the win length, so copies of a board share it.
+ */
+final class Windows {
+    // The amount of windows
+    final int count;
+    // The amount of squares of a window
+    final int length;
+    // Window w covers the squares firstSquare[w] + i * stride[w] for i below length
+    final int[] firstSquare;
+    final int[] stride;
+    // The windows through square i are squareWindows[squareStart[i]] until squareWindows[squareStart[i + 1] - 1]
+    final int[] squareStart;
+    final int[] squareWindows;
+
+    /**
+     * Enumerates the windows in the order column, row, \, /
+     *
+     * @param size   The size of the board
+     * @param length The length of a window
+     */
+    Windows(int size, int length) {
+        final int squares = size * size;
+        final int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+        // Collect the first square and the stride of every window
+        int[] firstSquare = new int[4 * squares];
+        int[] stride = new int[4 * squares];
+        int windows = 0;
+
+        for (int[] direction : directions) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    final int endX = x + direction[0] * (length - 1);
+                    final int endY = y + direction[1] * (length - 1);
+                    if (endX >= size || endY < 0 || endY >= size) {
+                        continue;
+                    }
+
+                    firstSquare[windows] = x * size + y;
+                    stride[windows] = direction[0] * size + direction[1];
+                    windows++;
+                }
+            }
+        }
+
+        // Count the windows per square and turn the counts into start offsets
+        int[] start = new int[squares + 1];
+        for (int window = 0; window < windows; window++) {
+            for (int i = 0; i < length; i++) {
+                start[firstSquare[window] + i * stride[window] + 1]++;
+            }
+        }
+        for (int i = 0; i < squares; i++) {
+            start[i + 1] += start[i];
+        }
+
+        int[] filled = new int[squares];
+        int[] list = new int[start[squares]];
+        for (int window = 0; window < windows; window++) {
+            for (int i = 0; i < length; i++) {
+                final int index = firstSquare[window] + i * stride[window];
+                list[start[index] + filled[index]++] = window;
+            }
+        }
+
+        this.count = windows;
+        this.length = length;
+        this.firstSquare = Arrays.copyOf(firstSquare, windows);
+        this.stride = Arrays.copyOf(stride, windows);
+        this.squareStart = start;
+        this.squareWindows = list;
+    }
+}
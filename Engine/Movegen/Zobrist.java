@@ -0,0 +1,51 @@
+package src.Engine.Movegen;
+
+import static src.Engine.Types.X_SIDE;
+
+/**
+ * Random keys for Zobrist hashing. The keys are generated from a fixed seed,
+ * so every board and every engine process produces the same key for a position.
+ */
+public final class Zobrist {
+    // Enough squares for every board size that Board accepts
+    public static final int MAX_SQUARES = Board.MAX_SIZE * Board.MAX_SIZE;
+
+    // Xor-ed into the key when O is to move
+    public static final long SIDE_KEY;
+
+    private static final long[] X_KEYS = new long[MAX_SQUARES];
+    private static final long[] O_KEYS = new long[MAX_SQUARES];
+
+    static {
+        long seed = 0x7A3C5E9B1D2F4861L;
+
+        for (int i = 0; i < MAX_SQUARES; i++) {
+            X_KEYS[i] = splitMix(seed += 0x9E3779B97F4A7C15L);
+            O_KEYS[i] = splitMix(seed += 0x9E3779B97F4A7C15L);
+        }
+        SIDE_KEY = splitMix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Gets the key of a stone
+     *
+     * @param side  The side that owns the stone
+     * @param index The square index of the stone
+     * @return The key
+     */
+    public static long piece(int side, int index) {
+        return side == X_SIDE ? X_KEYS[index] : O_KEYS[index];
+    }
+
+    /**
+     * SplitMix64 finalizer, which turns a counter into well distributed 64-bit numbers
+     */
+    private static long splitMix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.NNUE;
+
+import static src.Engine.Types.O_SIDE;
+import static src.Engine.Types.X_SIDE;
+
+/**
+ * The first layer of a {@link Network} for both perspectives of one board. A board updates it on every stone
+ * it adds or removes, which only adds or subtracts one column of weights per perspective,
+ * so the first layer never has to be computed from scratch during a search
+ */
+public class Accumulator {
+    private final Network network;
+    // The first layer from the view of X and of O
+    private final short[] x;
+    private final short[] o;
+    private final int[] activations;
+
+    /**
+     * Creates the accumulators of an empty board
+     *
+     * @param network The network
+     */
+    public Accumulator(Network network) {
+        this.network = network;
+        this.x = network.inputBiases.clone();
+        this.o = network.inputBiases.clone();
+        this.activations = new int[2 * network.getWidth()];
+    }
+
+    /**
+     * Creates an independent copy, e.g. for the copy of a board
+     *
+     * @param other The accumulators to copy
+     */
+    public Accumulator(Accumulator other) {
+        this.network = other.network;
+        this.x = other.x.clone();
+        this.o = other.o.clone();
+        this.activations = new int[other.activations.length];
+    }
+
+    /**
+     * Resets the accumulators to an empty board
+     */
+    public void clear() {
+        System.arraycopy(network.inputBiases, 0, x, 0, x.length);
+        System.arraycopy(network.inputBiases, 0, o, 0, o.length);
+    }
+
+    /**
+     * Adds a stone to both perspectives
+     *
+     * @param side  The side of the stone
+     * @param index The square of the stone
+     */
+    public void add(int side, int index) {
+        final Kernels kernels = network.getKernels();
+        kernels.addColumn(x, network.inputWeights, network.feature(X_SIDE, side, index) * x.length);
+        kernels.addColumn(o, network.inputWeights, network.feature(O_SIDE, side, index) * o.length);
+    }
+
+    /**
+     * Removes a stone from both perspectives, the inverse of {@link #add(int, int)}
+     *
+     * @param side  The side of the stone
+     * @param index The square of the stone
+     */
+    public void remove(int side, int index) {
+        final Kernels kernels = network.getKernels();
+        kernels.subtractColumn(x, network.inputWeights, network.feature(X_SIDE, side, index) * x.length);
+        kernels.subtractColumn(o, network.inputWeights, network.feature(O_SIDE, side, index) * o.length);
+    }
+
+    /**
+     * Runs the rest of the network
+     *
+     * @param sideToMove The side to move
+     * @return The evaluation for the side to move
+     */
+    public int evaluate(int sideToMove) {
+        return sideToMove == X_SIDE ? network.evaluate(x, o, activations) : network.evaluate(o, x, activations);
+    }
+
+    /**
+     * @param side The side
+     * @return The first layer from the view of the side, for comparisons in tests
+     */
+    public short[] getValues(int side) {
+        return (side == O_SIDE ? o : x).clone();
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+}
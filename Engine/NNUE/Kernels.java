@@ -0,0 +1,96 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.NNUE;
+
+/**
+ * The inner loops of a {@link Network}. The scalar kernels run everywhere, the vector kernels use the
+ * Java Vector API, which is an incubator module and only present if the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}. The best available kernels are selected once at startup
+ */
+public interface Kernels {
+    /**
+     * Adds a column of weights to the values
+     *
+     * @param values  The values, which are changed
+     * @param weights The weights
+     * @param offset  The index of the first weight of the column, the column has values.length weights
+     */
+    void addColumn(short[] values, short[] weights, int offset);
+
+    /**
+     * Subtracts a column of weights from the values, the inverse of {@link #addColumn(short[], short[], int)}
+     */
+    void subtractColumn(short[] values, short[] weights, int offset);
+
+    /**
+     * Clips the values to [0, max] and widens them to ints
+     *
+     * @param values      The values
+     * @param activations The buffer for the clipped values
+     * @param offset      The index of the first clipped value in the buffer
+     * @param max         The largest clipped value
+     */
+    void clip(short[] values, int[] activations, int offset, int max);
+
+    /**
+     * Multiplies a row of weights with the activations and sums the products up
+     *
+     * @param activations The activations
+     * @param weights     The weights
+     * @param offset      The index of the first weight of the row, the row has activations.length weights
+     * @return The sum of the products
+     */
+    int dot(int[] activations, int[] weights, int offset);
+
+    /**
+     * @return A short name for info lines and benchmarks
+     */
+    String getName();
+
+    /**
+     * @return The kernels without the Vector API
+     */
+    static Kernels scalar() {
+        return ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * @return The kernels with the Vector API, or null if the module is missing
+     */
+    static Kernels vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+
+        // The class can only be loaded when the module is there
+        try {
+            return new VectorKernels();
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The vector kernels if they are available, otherwise the scalar kernels
+     */
+    static Kernels best() {
+        final Kernels vector = vector();
+        return vector != null ? vector : scalar();
+    }
+}
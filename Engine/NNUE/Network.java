@@ -0,0 +1,294 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.NNUE;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * The weights of an efficiently updatable neural network for one board size.
+ * <p>
+ * Every side has one input per square for the own stones and one for the stones of the other side.
+ * The first layer is kept up to date by an {@link Accumulator} per perspective, a stone only adds or removes
+ * one column of weights. The two accumulators are clipped to [0, QA] and fed, side to move first, into a small
+ * hidden layer with 8 bit weights, which is clipped the same way and summed up by the output layer.
+ * All layers are integers, so the result is the same on every machine.
+ * <p>
+ * File layout, all numbers are big endian:
+ * <pre>
+ *     int   MAGIC
+ *     int   board size
+ *     int   accumulator width W
+ *     int   hidden width H
+ *     int   output scale, the evaluation of an output of QA * QB
+ *     short input weights, 2 * size * size columns of W values
+ *     short input biases, W values
+ *     byte  hidden weights, H rows of 2 * W values
+ *     int   hidden biases, H values
+ *     byte  output weights, H values
+ *     int   output bias
+ * </pre>
+ */
+public class Network {
+    // The activations are clipped to [0, QA], the 8 bit weights are scaled by QB
+    public static final int QA = 255;
+    public static final int QB = 64;
+    private static final int QB_SHIFT = 6;
+
+    static final int MAGIC = 0x4E4E5531;
+    private static final int HEADER_SIZE = 20;
+
+    private final int size;
+    private final int width;
+    private final int hiddenWidth;
+    private final int outputScale;
+    final short[] inputWeights;
+    final short[] inputBiases;
+    private final byte[] hiddenWeights;
+    // The hidden weights widened to ints, so a row multiplies directly with the activations
+    private final int[] hiddenRows;
+    private final int[] hiddenBiases;
+    private final byte[] outputWeights;
+    private final int outputBias;
+    private Kernels kernels = Kernels.best();
+
+    /**
+     * @param size          The size of the board
+     * @param width         The width of an accumulator
+     * @param hiddenWidth   The width of the hidden layer
+     * @param outputScale   The evaluation of an output of QA * QB
+     * @param inputWeights  The column of every input, see {@link #feature(int, int, int)}
+     * @param inputBiases   The starting values of an accumulator
+     * @param hiddenWeights The row of every hidden neuron, the accumulator of the side to move comes first
+     * @param hiddenBiases  The biases of the hidden neurons
+     * @param outputWeights The weight of every hidden neuron
+     * @param outputBias    The bias of the output
+     */
+    public Network(int size, int width, int hiddenWidth, int outputScale, short[] inputWeights, short[] inputBiases,
+                   byte[] hiddenWeights, int[] hiddenBiases, byte[] outputWeights, int outputBias) {
+        if (size < 1 || width < 1 || hiddenWidth < 1
+                || inputWeights.length != 2 * size * size * width || inputBiases.length != width
+                || hiddenWeights.length != hiddenWidth * 2 * width || hiddenBiases.length != hiddenWidth
+                || outputWeights.length != hiddenWidth) {
+            throw new IllegalArgumentException("The layers don't match a " + size + "x" + size + " board with width "
+                    + width + " and hidden width " + hiddenWidth);
+        }
+
+        this.size = size;
+        this.width = width;
+        this.hiddenWidth = hiddenWidth;
+        this.outputScale = outputScale;
+        this.inputWeights = inputWeights;
+        this.inputBiases = inputBiases;
+        this.hiddenWeights = hiddenWeights;
+        this.hiddenRows = new int[hiddenWeights.length];
+        for (int i = 0; i < hiddenWeights.length; i++) {
+            hiddenRows[i] = hiddenWeights[i];
+        }
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Reads a network file
+     *
+     * @param path The file
+     * @return The network
+     * @throws IOException If the file can't be read or is no network
+     */
+    public static Network load(Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("The file " + path + " is no network");
+            }
+
+            final int size = buffer.getInt();
+            final int width = buffer.getInt();
+            final int hiddenWidth = buffer.getInt();
+            final int outputScale = buffer.getInt();
+            if (size < 1 || width < 1 || hiddenWidth < 1) {
+                throw new IOException("The network " + path + " has invalid dimensions");
+            }
+
+            final short[] inputWeights = new short[2 * size * size * width];
+            buffer.asShortBuffer().get(inputWeights);
+            buffer.position(buffer.position() + 2 * inputWeights.length);
+
+            final short[] inputBiases = new short[width];
+            buffer.asShortBuffer().get(inputBiases);
+            buffer.position(buffer.position() + 2 * inputBiases.length);
+
+            final byte[] hiddenWeights = new byte[hiddenWidth * 2 * width];
+            buffer.get(hiddenWeights);
+
+            final int[] hiddenBiases = new int[hiddenWidth];
+            buffer.asIntBuffer().get(hiddenBiases);
+            buffer.position(buffer.position() + 4 * hiddenBiases.length);
+
+            final byte[] outputWeights = new byte[hiddenWidth];
+            buffer.get(outputWeights);
+            final int outputBias = buffer.getInt();
+
+            if (buffer.hasRemaining()) {
+                throw new IOException("The network " + path + " is too long");
+            }
+
+            return new Network(size, width, hiddenWidth, outputScale, inputWeights, inputBiases,
+                    hiddenWeights, hiddenBiases, outputWeights, outputBias);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("The network " + path + " is truncated");
+        }
+    }
+
+    /**
+     * Writes the network in the format of {@link #load(Path)}
+     *
+     * @param path The file, which is overwritten
+     * @throws IOException If the file can't be written
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(size);
+            output.writeInt(width);
+            output.writeInt(hiddenWidth);
+            output.writeInt(outputScale);
+
+            for (short weight : inputWeights) {
+                output.writeShort(weight);
+            }
+            for (short bias : inputBiases) {
+                output.writeShort(bias);
+            }
+            output.write(hiddenWeights);
+            for (int bias : hiddenBiases) {
+                output.writeInt(bias);
+            }
+            output.write(outputWeights);
+            output.writeInt(outputBias);
+        }
+    }
+
+    /**
+     * Creates a network with small random weights. It plays badly, but has the speed of a real network
+     * of the same size, e.g. for benchmarks and tests
+     *
+     * @param size        The size of the board
+     * @param width       The width of an accumulator
+     * @param hiddenWidth The width of the hidden layer
+     * @param seed        The seed of the weights
+     * @return The network
+     */
+    public static Network random(int size, int width, int hiddenWidth, long seed) {
+        final Random random = new Random(seed);
+
+        final short[] inputWeights = new short[2 * size * size * width];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+
+        final short[] inputBiases = new short[width];
+        for (int i = 0; i < width; i++) {
+            inputBiases[i] = (short) random.nextInt(QA / 2);
+        }
+
+        final byte[] hiddenWeights = new byte[hiddenWidth * 2 * width];
+        random.nextBytes(hiddenWeights);
+
+        final int[] hiddenBiases = new int[hiddenWidth];
+        for (int i = 0; i < hiddenWidth; i++) {
+            hiddenBiases[i] = random.nextInt(QA * QB) - QA * QB / 2;
+        }
+
+        final byte[] outputWeights = new byte[hiddenWidth];
+        random.nextBytes(outputWeights);
+
+        return new Network(size, width, hiddenWidth, 400, inputWeights, inputBiases,
+                hiddenWeights, hiddenBiases, outputWeights, 0);
+    }
+
+    /**
+     * The input of a stone for one perspective
+     *
+     * @param perspective The side whose accumulator is meant
+     * @param side        The side of the stone
+     * @param index       The square of the stone
+     * @return The index of the column in the input weights
+     */
+    int feature(int perspective, int side, int index) {
+        return (side == perspective ? 0 : size * size) + index;
+    }
+
+    /**
+     * Runs the layers after the accumulators
+     *
+     * @param own         The accumulator of the side to move
+     * @param other       The accumulator of the other side
+     * @param activations A buffer for 2 * width clipped values
+     * @return The evaluation for the side to move
+     */
+    int evaluate(short[] own, short[] other, int[] activations) {
+        kernels.clip(own, activations, 0, QA);
+        kernels.clip(other, activations, width, QA);
+
+        int output = outputBias;
+        for (int neuron = 0, row = 0; neuron < hiddenWidth; neuron++, row += 2 * width) {
+            final int sum = hiddenBiases[neuron] + kernels.dot(activations, hiddenRows, row);
+
+            // Back to the scale of the activations
+            output += Math.max(0, Math.min(QA, sum >> QB_SHIFT)) * outputWeights[neuron];
+        }
+
+        return (int) ((long) output * outputScale / (QA * QB));
+    }
+
+    /**
+     * Replaces the kernels that were selected at startup, e.g. to compare them in a benchmark
+     *
+     * @param kernels The kernels
+     */
+    public void setKernels(Kernels kernels) {
+        this.kernels = kernels;
+    }
+
+    public Kernels getKernels() {
+        return kernels;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHiddenWidth() {
+        return hiddenWidth;
+    }
+}
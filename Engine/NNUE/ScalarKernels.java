@@ -0,0 +1,64 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.NNUE;
+
+/**
+ * Plain loops, which the JIT may still vectorize on its own
+ */
+final class ScalarKernels implements Kernels {
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    public void addColumn(short[] values, short[] weights, int offset) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtractColumn(short[] values, short[] weights, int offset) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public void clip(short[] values, int[] activations, int offset, int max) {
+        for (int i = 0; i < values.length; i++) {
+            activations[offset + i] = Math.max(0, Math.min(max, values[i]));
+        }
+    }
+
+    @Override
+    public int dot(int[] activations, int[] weights, int offset) {
+        int sum = 0;
+        for (int i = 0; i < activations.length; i++) {
+            sum += activations[i] * weights[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,98 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.NNUE;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels with the widest vectors of the machine, the remainder of a row is done with scalar loops.
+ * This class may only be loaded if the module jdk.incubator.vector is present, see {@link Kernels#vector()}
+ */
+final class VectorKernels implements Kernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void addColumn(short[] values, short[] weights, int offset) {
+        int i = 0;
+        for (final int bound = SHORTS.loopBound(values.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, values, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(values, i);
+        }
+        for (; i < values.length; i++) {
+            values[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtractColumn(short[] values, short[] weights, int offset) {
+        int i = 0;
+        for (final int bound = SHORTS.loopBound(values.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, values, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(values, i);
+        }
+        for (; i < values.length; i++) {
+            values[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public void clip(short[] values, int[] activations, int offset, int max) {
+        // One vector of shorts fills several vectors of ints
+        final int parts = SHORTS.length() / INTS.length();
+        int i = 0;
+        for (final int bound = SHORTS.loopBound(values.length); i < bound; i += SHORTS.length()) {
+            final ShortVector clipped = ShortVector.fromArray(SHORTS, values, i).max((short) 0).min((short) max);
+            for (int part = 0; part < parts; part++) {
+                ((IntVector) clipped.convertShape(VectorOperators.S2I, INTS, part))
+                        .intoArray(activations, offset + i + part * INTS.length());
+            }
+        }
+        for (; i < values.length; i++) {
+            activations[offset + i] = Math.max(0, Math.min(max, values[i]));
+        }
+    }
+
+    @Override
+    public int dot(int[] activations, int[] weights, int offset) {
+        IntVector sums = IntVector.zero(INTS);
+        int i = 0;
+        for (final int bound = INTS.loopBound(activations.length); i < bound; i += INTS.length()) {
+            sums = IntVector.fromArray(INTS, activations, i)
+                    .mul(IntVector.fromArray(INTS, weights, offset + i))
+                    .add(sums);
+        }
+
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < activations.length; i++) {
+            sum += activations[i] * weights[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String getName() {
+        return "vector";
+    }
+}
@@ -21,23 +21,89 @@ package src.Engine;
 
 import src.Engine.Movegen.Board;
 import src.Engine.Movegen.Move;
+import src.Engine.NNUE.Accumulator;
+import src.Engine.NNUE.Network;
+import src.Engine.Tablebase.Tablebase;
+
+import java.util.Arrays;
 
 import static src.Engine.Types.*;
 
 public class Search {
 
+    // The positions used by bench and the thread scaling report
+    public static final String[] BENCH_POSITIONS = {
+            "0000000000000000200000001000000200000010000100020000000000000001000100000000000000002000000000000000o",
+            "0000000000002000010000001102210000020100001000201000202000000012011020000021201000200000000000000000o",
+            "0000000000010010200001201000100200202000000010002000001200000020000010002000000000100000000000000000x",
+            "2111221221211211112212110122122222121122210112221112222111121222211212112212211211121112220221122211x"
+    };
+
     private final Stack[] stack = new Stack[256];
     private final Evaluation evaluate = new Evaluation();
     private final MoveOrder moveOrder = new MoveOrder();
-    private final TranspositionTable transpositionTable = new TranspositionTable(16);
+    private final ThreatSearch threatSearch = new ThreatSearch();
+    // 0 disables the threat search, 1 uses it at the root and 2 also at shallow nodes
+    private int threatMode = 1;
+    // The exact results of a small board, null if there is none
+    private Tablebase tablebase = null;
+    // The evaluation network, null for the classical evaluation
+    private Network network = null;
+    private final TranspositionTable transpositionTable;
+    private final EvalCache evalCache;
+    // Separates the cache entries of different board sizes and win lengths
+    private long evalKey = 0;
 
     // Indexed by Depth | Move counter
     short[][] reductions;
-    private int nodes = 0;
-    private Move bestMove = Move.NULL_MOVE;
+    // Preallocated encoded moves and their scores, indexed by ply
+    private MovePicker[] movePickers;
+    private long nodes = 0;
+    // Statistics of the transposition table for bench, every search counts its own so the threads don't share them
+    private long ttProbes, ttHits, ttCollisions;
+    // The same for the evaluation cache
+    private long evalProbes, evalHits;
+    private int bestMove = Move.NONE;
+    // The first move of a likely win by threes, which the root searches first
+    private int rootHint = Move.NONE;
     private History history;
-    private boolean isNormalSearch = true, shouldStop = false;
-    private double startTime, thinkTime;
+    private boolean isNormalSearch = true;
+    // Set by this search on a time-out, or from another thread to stop the search
+    private volatile boolean shouldStop = false;
+    private TimeManager timeManager = TimeManager.infinite();
+    // Up to this ply only one move of every group of symmetric moves is searched
+    private static final int SYMMETRY_PLY = 2;
+    // The nodes spent below every root move, indexed by the encoded move
+    private final long[] rootMoveNodes = new long[Move.encode(Board.MAX_SIZE - 1, Board.MAX_SIZE - 1) + 1];
+
+    // 0 for the main search, helper searches of a ThreadPool start at 1
+    private int threadId = 0;
+    private ThreadPool threadPool;
+
+    public Search() {
+        this(new TranspositionTable(16));
+    }
+
+    /**
+     * Creates a search that uses the given transposition table, which may be shared with other searches
+     *
+     * @param transpositionTable The transposition table
+     */
+    public Search(TranspositionTable transpositionTable) {
+        this(transpositionTable, new EvalCache(4));
+    }
+
+    /**
+     * Creates a search that uses the given transposition table and evaluation cache,
+     * which may be shared with other searches
+     *
+     * @param transpositionTable The transposition table
+     * @param evalCache          The evaluation cache
+     */
+    public Search(TranspositionTable transpositionTable, EvalCache evalCache) {
+        this.transpositionTable = transpositionTable;
+        this.evalCache = evalCache;
+    }
 
 
     // TODO: IDEA when we are at a near win drop in some kind of Quiescence Search
@@ -50,14 +116,9 @@ public class Search {
         nodes++;
 
         if (!isNormalSearch) {
-            // Every 4096 nodes we check for a time-out
-            if (nodes % 4096 == 0) {
-
-                // Check for a time-out
-                double elapsed = System.currentTimeMillis() - startTime;
-                if (elapsed > thinkTime) {
-                    shouldStop = true;
-                }
+            // Every 4096 nodes we check the hard time limit
+            if (nodes % 4096 == 0 && timeManager.hardLimitReached()) {
+                shouldStop = true;
             }
         }
 
@@ -69,7 +130,7 @@ public class Search {
         }
 
         if (!root && shouldExit(board, ply)) {
-            return ply >= MAX_PLY - 1 && !board.hasWin((byte) (board.getSideToMove() ^ 3)) ? evaluate.evaluate(board) : 0;
+            return ply >= MAX_PLY - 1 && !board.hasWin((byte) (board.getSideToMove() ^ 3)) ? cachedEvaluation(board) : 0;
         }
 
         // We check if the opponent has won
@@ -79,12 +140,34 @@ public class Search {
             return 0;
         }
 
+        // Every window has stones of both sides, so nobody can win anymore
+        if (!root && board.isDeadDraw()) {
+            return 0;
+        }
+
+        // Small boards are solved, so the tablebase knows the exact result
+        if (tablebase != null && !root) {
+            final int value = tablebase.probe(board);
+            if (value != Tablebase.NOT_FOUND) {
+                return tablebaseScore(value, ply);
+            }
+        }
+
         // Either the depth is zero or the game is over (terminal node) we return a static evaluation of the position
         if (depth <= 0) {
-            return evaluate.evaluate(board);
+            return cachedEvaluation(board);
+        }
+
+        // A forced win by fours near the root, which the normal search might be too shallow for
+        if (threatMode >= 2 && !root && ply <= 2 && depth >= 3
+                && threatSearch.findWin(board, 16, 500, false) != Move.NONE) {
+            return EVAL_MATE - ply - threatSearch.getLength();
         }
 
-        final int key = board.getKey();
+        // With symmetry tracking all rotations and mirror images of the position share one entry,
+        // which stores its move for the orientation of the smallest key
+        final int transform = board.getCanonicalTransform();
+        final long key = board.getKey(transform);
         final boolean pvNode = beta > alpha + 1;
 
         /*
@@ -94,25 +177,24 @@ public class Search {
          */
 
         // Probe the transposition table
-        TranspositionTable.Entry entry = transpositionTable.probe(key);
+        final long entry = transpositionTable.probe(key);
+        ttProbes++;
 
         // Set up values that are potentially stored in the transposition table
         int hashedScore = 0;
         byte hashedType = 0;
         int hashedDepth = 0;
-        Move hashedMove = Move.NULL_MOVE;
+        int hashedMove = Move.NONE;
         int staticEval = EVAL_NONE;
 
         // Check if we actually got a transposition entry
-        if (entry != null) {
-
-            if (entry.key() == key) {
-                hashedScore = transpositionTable.scoreFromTT(entry.score(), ply);
-                hashedType = entry.type();
-                hashedDepth = entry.depth();
-                staticEval = entry.staticEval();
-                hashedMove = new Move(entry.move());
-            }
+        if (entry != TranspositionTable.NO_ENTRY) {
+            ttHits++;
+            hashedScore = transpositionTable.scoreFromTT(TranspositionTable.score(entry), ply);
+            hashedType = TranspositionTable.type(entry);
+            hashedDepth = TranspositionTable.depth(entry);
+            staticEval = TranspositionTable.staticEval(entry);
+            hashedMove = board.getSymmetry().untransformMove(transform, TranspositionTable.move(entry));
 
             //Check if we can return a stored score
             if (!pvNode && hashedDepth >= depth && ply > 0) {
@@ -125,13 +207,13 @@ public class Search {
         }
 
         // If we got not a transposition, we can expect that move order is worse so we search at a reduced depth
-        if (entry == null && depth >= 4 && pvNode) {
+        if (entry == TranspositionTable.NO_ENTRY && depth >= 4 && pvNode) {
             depth -= 1;
         }
 
         // If no evaluation was found in the transposition table, we statically evaluate the position
         if (staticEval == EVAL_NONE) {
-            staticEval = evaluate.evaluate(board);
+            staticEval = cachedEvaluation(board);
         }
 
         /*
@@ -179,25 +261,25 @@ public class Search {
 
         int bestScore = -EVAL_INFINITE;
 
-        // Generate all legal moves of the position
-        Move[] legalMoves = board.generateLegalMoves();
-
-        // Assign a score to all the moves
-        int[] scores = moveOrder.scoreMoves(legalMoves, stack[ply].killer, hashedMove, board, history);
+        // The moves get generated and scored only if the hash move and the killer didn't cut
+        final MovePicker movePicker = movePickers[ply];
+        movePicker.init(board, history, root && rootHint != Move.NONE ? rootHint : hashedMove, stack[ply].killer);
 
-        Move bestMovePVS = Move.NULL_MOVE;
+        int bestMovePVS = Move.NONE;
         short type = TranspositionTable.LOWER_BOUND;
         int moveCounter = 0;
+        int move;
 
-        for (int i = 0; i < legalMoves.length; i++) {
+        // In a symmetric position the rotations and mirror images of a move lead to the same position
+        final int invariantTransforms = ply <= SYMMETRY_PLY ? board.getInvariantTransforms() : 1;
 
-            // Get a move based on the score of the move
-            moveOrder.sort(i, legalMoves, scores);
-            Move move = legalMoves[i];
-
-            assert (move != Move.NULL_MOVE);
+        while ((move = movePicker.next()) != Move.NONE) {
+            if (invariantTransforms != 1 && !board.getSymmetry().isRepresentative(invariantTransforms, move)) {
+                continue;
+            }
 
             // We make our move
+            final long nodesBefore = nodes;
             board.makeMove(move);
             moveCounter++;
 
@@ -214,8 +296,8 @@ public class Search {
                 // So we search these types of moves with less depth
                 int lmr = 0;
                 if (depth > 2) {
-                    // We use i instead of the moveCount because on an empty board it causes an array out of bounds
-                    lmr = reductions[depth][i];
+                    // The table starts at index 0, so the first move uses moveCounter - 1 = 0
+                    lmr = reductions[depth][moveCounter - 1];
 
                     // Reduce less if we are in a PvNode
                     lmr -= pvNode ? 2 : 0;
@@ -243,9 +325,14 @@ public class Search {
             // We unmake the move
             board.unmakeMove(move);
 
+            if (root) {
+                rootMoveNodes[move] += nodes - nodesBefore;
+            }
+
             assert (score > -EVAL_INFINITE && score < EVAL_INFINITE);
 
-            if (shouldStop && this.bestMove != Move.NULL_MOVE) {
+            // A stopped node unwinds right away, only the root waits for its first scored move
+            if (shouldStop && (!root || this.bestMove != Move.NONE)) {
                 return 0;
             }
 
@@ -282,7 +369,7 @@ public class Search {
                         // penalize all other quiet moves since they are not promising, we apply a negative
                         // bonus to all other quiet moves so they get lower ranked in move ordering
                         for (int x = 0; x < moveCounter; x++) {
-                            Move madeMove = legalMoves[x];
+                            int madeMove = legalMoves[x];
                             if (madeMove == bestMovePVS) {
                                 continue;
                             }
@@ -297,6 +384,11 @@ public class Search {
             }
         }
 
+        // The scores of a stopped search are incomplete, so they must not get into the transposition table
+        if (shouldStop) {
+            return bestScore;
+        }
+
         byte finalType;
 
         //Calculate the node type
@@ -308,8 +400,10 @@ public class Search {
             finalType = TranspositionTable.UPPER_BOUND;
         }
 
-        transpositionTable.write(board.getKey(), finalType, (short) staticEval, transpositionTable.scoreToTT(bestScore, ply),
-                bestMovePVS.getMoveData(), (short) depth);
+        if (transpositionTable.write(key, finalType, (short) staticEval, transpositionTable.scoreToTT(bestScore, ply),
+                (short) board.getSymmetry().transformMove(transform, bestMovePVS), (short) depth)) {
+            ttCollisions++;
+        }
 
 
         return bestScore;
@@ -329,8 +423,9 @@ public class Search {
 
         while (true) {
             score = negamax(board, depth, 0, alpha, beta, false);
-            double elapsed = System.currentTimeMillis() - startTime;
-            if (elapsed > thinkTime) {
+
+            // The score of an aborted search is incomplete, the caller has to ignore it
+            if (shouldStop) {
                 return score;
             }
 
@@ -350,53 +445,286 @@ public class Search {
     }
 
     public Move getBestMove(Board board, long thinkTime, boolean minimal) {
+        transpositionTable.newSearch();
+        shouldStop = false;
+        return iterativeDeepening(board, thinkTime, minimal);
+    }
+
+    /**
+     * Searches for a fixed time, a negative time only searches depth 1
+     */
+    Move iterativeDeepening(Board board, long thinkTime, boolean minimal) {
+        if (thinkTime < 0) {
+            return fixedDepth(board, 1);
+        }
+        return iterativeDeepening(board, TimeManager.forMoveTime(thinkTime), minimal);
+    }
+
+    /**
+     * Runs the iterative deepening loop. Unlike getBestMove this doesn't reset the stop flag,
+     * so a {@link ThreadPool} can stop the search before the thread has even started
+     *
+     * @param board       The position
+     * @param timeManager The limits of this search
+     * @param minimal     If no info lines should be printed
+     * @return The best move of the last finished depth
+     */
+    Move iterativeDeepening(Board board, TimeManager timeManager, boolean minimal) {
         initStack();
         initLMR(board);
-        Move tempBestMove = Move.NULL_MOVE;
-        this.bestMove = Move.NULL_MOVE;
+        initMoveBuffers(board);
+        initEvaluation(board);
+        int tempBestMove = Move.NONE;
+        this.bestMove = Move.NONE;
+        this.timeManager = timeManager;
+        nodes = 0;
 
-        if (thinkTime < 0) {
-            negamax(board, (short) 1, 0, -EVAL_INFINITE, EVAL_INFINITE, false);
-            return this.bestMove;
+        // The tablebase knows the best move right away
+        if (tablebase != null && threadId == 0) {
+            final int tablebaseMove = tablebase.bestMove(board);
+            if (tablebaseMove != Move.NONE) {
+                if (!minimal) {
+                    System.out.println("info depth 0" + scoreToUci(tablebaseScore(tablebase.probe(board), 0)) + " nodes 0 pv " + toMove(tablebaseMove));
+                }
+                return toMove(tablebaseMove);
+            }
+        }
+
+        // Look for a forced win in threat space first, it finds deep wins in milliseconds
+        rootHint = Move.NONE;
+        if (threatMode >= 1 && threadId == 0) {
+            int threatMove = findThreatWin(board, minimal);
+            if (threatMove != Move.NONE) {
+                return toMove(threatMove);
+            }
         }
-        this.thinkTime = thinkTime;
+
         isNormalSearch = false;
-        shouldStop = false;
-        nodes = 0;
-        startTime = System.currentTimeMillis();
+        Arrays.fill(rootMoveNodes, 0);
         int score = 0;
         int depth = 0;
+        int stability = 0;
 
-        int previousScore = 0;
+        // Helper threads start one depth deeper on every second thread, so that the threads don't search in lockstep
+        for (short i = (short) (1 + threadId % 2); i < MAX_PLY; i++) {
+            int iterationScore = i >= 6 ? aspiration(i, score, board) : negamax(board, i, 0, -EVAL_INFINITE, EVAL_INFINITE, false);
 
-        for (short i = 1; i < MAX_PLY; i++) {
-            depth = i;
-            score = i >= 6 ? aspiration(i, previousScore, board) : negamax(board, i, 0, -EVAL_INFINITE, EVAL_INFINITE, false);
-            previousScore = score;
+            // Only finished iterations count, the score and the best move of an aborted one are incomplete
             if (shouldStop) {
                 break;
             }
+
+            depth = i;
+            score = iterationScore;
+            stability = this.bestMove == tempBestMove ? stability + 1 : 0;
+            tempBestMove = this.bestMove;
+
             if (!minimal) {
-                System.out.println("info depth " + i + scoreToUci(score) + " nodes " + nodes + " nps " + (int) Math.round(nodes / (((System.currentTimeMillis() - startTime) / 1000.0) + 1)) + " pv " + this.bestMove);
+                long totalNodes = getTotalNodes();
+                System.out.println("info depth " + i + scoreToUci(score) + " nodes " + totalNodes + " nps " + Math.round(totalNodes / ((timeManager.elapsedMillis() / 1000.0) + 1)) + " pv " + toMove(this.bestMove));
             }
+
+            // Don't start an iteration that we probably can't finish
+            final double bestMoveNodes = nodes > 0 && tempBestMove != Move.NONE ? rootMoveNodes[tempBestMove] / (double) nodes : 0;
+            if (timeManager.softLimitReached(stability, bestMoveNodes)) {
+                break;
+            }
+        }
+
+        // Stopped before the first depth was finished
+        if (tempBestMove == Move.NONE) {
             tempBestMove = this.bestMove;
         }
 
         if (!minimal) {
-            System.out.println("info depth " + depth + scoreToUci(score) + " nodes " + nodes + " nps " + (int) Math.round(nodes / (((System.currentTimeMillis() - startTime) / 1000.0) + 1)) + " hashfull " + transpositionTable.hashfull() + " pv " + tempBestMove);
+            long totalNodes = getTotalNodes();
+            System.out.println("info depth " + depth + scoreToUci(score) + " nodes " + totalNodes + " nps " + Math.round(totalNodes / ((timeManager.elapsedMillis() / 1000.0) + 1)) + " hashfull " + transpositionTable.hashfull() + " pv " + toMove(tempBestMove));
         }
         isNormalSearch = true;
-        shouldStop = false;
-        return tempBestMove;
+        return toMove(tempBestMove);
+    }
+
+    /**
+     * Searches for a win by fours and then for a win by threes in threat space.
+     * A win by fours is proven, so it is played right away. The defender of a win by threes only tries a few
+     * squares, so its first move only becomes the first move of the normal search, see {@link #rootHint}
+     *
+     * @param board   The position
+     * @param minimal If no info lines should be printed
+     * @return The encoded first move of the win by fours, or {@link Move#NONE}
+     */
+    private int findThreatWin(Board board, boolean minimal) {
+        final int vcfMove = threatSearch.findWin(board, 40, 100000, false);
+        if (vcfMove != Move.NONE) {
+            if (!minimal) {
+                System.out.println("info string VCF win in " + threatSearch.getLength() + " plies, "
+                        + threatSearch.getNodes() + " nodes");
+            }
+            return vcfMove;
+        }
+
+        rootHint = threatSearch.findWin(board, 12, 100000, true);
+        if (rootHint != Move.NONE && !minimal) {
+            System.out.println("info string VCT win in " + threatSearch.getLength() + " plies, "
+                    + threatSearch.getNodes() + " nodes, searching " + toMove(rootHint) + " first");
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Turns a tablebase value into a score, a win or loss in n plies scores like a mate found by the search
+     *
+     * @param value The value from the tablebase
+     * @param ply   The current ply
+     * @return The score for the side to move
+     */
+    private static int tablebaseScore(int value, int ply) {
+        final int result = Tablebase.result(value);
+        if (result == Tablebase.WIN) {
+            return EVAL_MATE - ply - Tablebase.distance(value);
+        }
+        if (result == Tablebase.LOSS) {
+            return -EVAL_MATE + ply + Tablebase.distance(value);
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the tablebase that is probed during the search
+     *
+     * @param tablebase The tablebase, or null to disable it
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the evaluation network, it is only used on boards of its size
+     *
+     * @param network The network, null for the classical evaluation
+     */
+    public void setNetwork(Network network) {
+        // The cached evaluations of the old network are wrong for the new one
+        if (network != null && network != this.network) {
+            evalCache.clear();
+        }
+        this.network = network;
+    }
+
+    /**
+     * Attaches the accumulator of the network to the board, or detaches it if the network doesn't fit the board,
+     * and selects the evaluation cache entries of the board
+     */
+    private void initEvaluation(Board board) {
+        if (network == null || network.getSize() != board.getSize()) {
+            board.setAccumulator(null);
+        } else if (board.getAccumulator() == null || board.getAccumulator().getNetwork() != network) {
+            board.setAccumulator(new Accumulator(network));
+        }
+        evalKey = EvalCache.variantKey(board);
+    }
+
+    /**
+     * Evaluates the position, or takes the evaluation of the network from the evaluation cache.
+     * The classical evaluation reads a few running totals of the board, which is faster than a cache lookup
+     *
+     * @param board The board
+     * @return The static evaluation for the side to move
+     */
+    private int cachedEvaluation(Board board) {
+        if (board.getAccumulator() == null) {
+            return evaluate.evaluate(board);
+        }
+
+        final long key = board.getKey() ^ evalKey;
+        int eval = evalCache.probe(key);
+        evalProbes++;
+        if (eval == EVAL_NONE) {
+            eval = evaluate.evaluate(board);
+            evalCache.store(key, eval);
+        } else {
+            evalHits++;
+        }
+        return eval;
+    }
+
+    /**
+     * Sets where the threat search is used
+     *
+     * @param threatMode 0 disables the threat search, 1 uses it at the root and 2 also at shallow nodes
+     */
+    public void setThreatMode(int threatMode) {
+        this.threatMode = threatMode;
     }
 
     public Move getBestMove(Board board, int depth) {
-        this.bestMove = Move.NULL_MOVE;
+        transpositionTable.newSearch();
+        shouldStop = false;
+        return fixedDepth(board, depth);
+    }
+
+    /**
+     * Searches the position to a fixed depth without a time limit, it can still be stopped with {@link #stop()}
+     */
+    Move fixedDepth(Board board, int depth) {
+        this.bestMove = Move.NONE;
+        this.rootHint = Move.NONE;
         initStack();
         initLMR(board);
+        initMoveBuffers(board);
+        initEvaluation(board);
         nodes = 0;
         negamax(board, (short) depth, 0, -EVAL_INFINITE, EVAL_INFINITE, false);
-        return bestMove;
+        return toMove(bestMove);
+    }
+
+    /**
+     * Stops the search, this can be called from any thread
+     */
+    public void stop() {
+        shouldStop = true;
+    }
+
+    /**
+     * Resets the stop flag before a {@link ThreadPool} starts this search.
+     * The search itself never resets the flag, so a stop from another thread is never lost
+     */
+    void prepare() {
+        shouldStop = false;
+    }
+
+    /**
+     * @return The nodes of this search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The nodes of all threads, if this search belongs to a {@link ThreadPool}
+     */
+    private long getTotalNodes() {
+        return threadPool != null ? threadPool.getNodes() : nodes;
+    }
+
+    void setThreadPool(ThreadPool threadPool, int threadId) {
+        this.threadPool = threadPool;
+        this.threadId = threadId;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    public EvalCache getEvalCache() {
+        return evalCache;
+    }
+
+    /**
+     * Converts an encoded move back into a {@link Move} for the callers of the search
+     */
+    private static Move toMove(int move) {
+        return move == Move.NONE ? Move.NULL_MOVE : new Move((short) move);
     }
 
     String scoreToUci(int score) {/*
@@ -416,38 +744,46 @@ public class Search {
         }
     }
 
+    /**
+     * Allocates the move picker of every ply, so that the search itself doesn't allocate
+     *
+     * @param board The board which is going to be searched
+     */
+    public void initMoveBuffers(Board board) {
+        final int squares = board.getSize() * board.getSize();
+        moveOrder.init(board.getSize());
+        if (movePickers == null || movePickers[0].capacity() < squares) {
+            movePickers = new MovePicker[stack.length];
+            for (int i = 0; i < movePickers.length; i++) {
+                movePickers[i] = new MovePicker(squares, moveOrder);
+            }
+        }
+    }
+
     public void initHistory(Board board) {
         history = new History(board.getSize());
     }
 
     public int bench() {
         initStack();
-        startTime = System.currentTimeMillis();
+        ttProbes = 0;
+        ttHits = 0;
+        ttCollisions = 0;
+        evalProbes = 0;
+        evalHits = 0;
+        long startTime = System.currentTimeMillis();
         shouldStop = false;
         isNormalSearch = true;
         int benchDepth = 9;
 
         Board board = new Board(10, 5);
-        int nodeCount = 0;
-
-        board.setBoardNotation("0000000000000000200000001000000200000010000100020000000000000001000100000000000000002" +
-                "000000000000000o");
-        getBestMove(board, benchDepth);
-        nodeCount += this.nodes;
-
-        board.setBoardNotation("0000000000002000010000001102210000020100001000201000202000000012011020000021201000200" +
-                "000000000000000o");
-        getBestMove(board, benchDepth);
-        nodeCount += this.nodes;
-
-        board.setBoardNotation("0000000000010010200001201000100200202000000010002000001200000020000010002000000000100" +
-                "000000000000000x");
-        getBestMove(board, benchDepth);
-        nodeCount += this.nodes;
+        long nodeCount = 0;
 
-        board.setBoardNotation("2111221221211211112212110122122222121122210112221112222111121222211212112212211211121112220221122211x");
-        getBestMove(board, benchDepth);
-        nodeCount += this.nodes;
+        for (String position : BENCH_POSITIONS) {
+            board.setBoardNotation(position);
+            getBestMove(board, benchDepth);
+            nodeCount += this.nodes;
+        }
 
         double elapsedTime = System.currentTimeMillis() - startTime;
         double elapsedTimeSeconds = elapsedTime / 1000.0;
@@ -456,6 +792,14 @@ public class Search {
         System.out.println("Time  : " + elapsedTime + " ms");
         System.out.println("Nodes : " + nodeCount);
         System.out.println("NPS   : " + NPS);
+        System.out.println("Hits  : " + ttHits + " / " + ttProbes + " probes");
+        System.out.println("Collisions : " + ttCollisions);
+        // Only the network uses the evaluation cache
+        if (network != null && network.getSize() == board.getSize()) {
+            System.out.println("Eval hits : " + evalHits + " / " + evalProbes + " probes");
+        } else {
+            System.out.println("Eval hits : n/a (classical evaluation)");
+        }
         return NPS;
     }
 
@@ -464,7 +808,8 @@ public class Search {
         int nps = 0;
         for (int i = 0; i < amount; i++) {
             nps += bench();
-            transpositionTable.resize(16);
+            transpositionTable.clear();
+            evalCache.clear();
         }
         System.out.println("Average speed of " + amount + " Benchmarks is: " + Math.round((float) nps / amount) +
                 " NPS");
@@ -481,7 +826,11 @@ public class Search {
         }
     }
 
+    /**
+     * Checks if a node should return right away. A stop is honoured even before the root has a best move,
+     * the root then takes its first move, so a deep fixed depth search can be stopped as well
+     */
     private boolean shouldExit(Board board, int ply) {
-        return (shouldStop || ply >= MAX_PLY - 1 || board.isFull()) && this.bestMove != Move.NULL_MOVE;
+        return shouldStop || ((ply >= MAX_PLY - 1 || board.isFull()) && this.bestMove != Move.NONE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.Solver;
+
+import src.Engine.Movegen.Move;
+
+/**
+ * The game theoretic value of a position from the view of the side to move
+ */
+public class Solution {
+    public static final int UNKNOWN = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int DRAW = 3;
+
+    private static final String[] NAMES = {"unknown", "win", "loss", "draw"};
+
+    private final int result;
+    private final int move;
+    private final long nodes;
+
+    /**
+     * @param result The result, one of UNKNOWN, WIN, LOSS or DRAW
+     * @param move   The encoded proof move or {@link Move#NONE}
+     * @param nodes  The amount of nodes that were searched
+     */
+    Solution(int result, int move, long nodes) {
+        this.result = result;
+        this.move = move;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return The result, one of UNKNOWN, WIN, LOSS or DRAW
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the move that achieves the result: the winning move of a win or a move that holds the draw.
+     * A loss or an unknown result has no such move
+     *
+     * @return The encoded move, or {@link Move#NONE}
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        String string = NAMES[result];
+        if (move != Move.NONE) {
+            string += " move " + Move.getX(move) + "," + Move.getY(move);
+        }
+        return string;
+    }
+}
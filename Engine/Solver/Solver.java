@@ -0,0 +1,360 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.Solver;
+
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+import src.Engine.Movegen.Symmetry;
+import src.Engine.Movegen.Zobrist;
+
+/**
+ * Solves positions with a depth-first proof number search (df-pn).
+ * <p>
+ * A proof number search proves or disproves that one side, the attacker, wins.
+ * The proof number of a node is the minimum amount of leaves that still have to be proven,
+ * the disproof number the amount of leaves that have to be disproven. The search always expands
+ * the most proving node and only returns to the parent once a number reaches the threshold of the parent.
+ * <p>
+ * A draw disproves a win for either side, so the full result needs two searches:
+ * first if the side to move wins, then if the other side wins.
+ * Unlike {@link src.Engine.Search} every empty square is tried, the only pruning is exact:
+ * a side that can complete a line wins and a side facing two completions loses
+ */
+public class Solver {
+    private static final int INFINITY = 1 << 30;
+    private static final int UNKNOWN_NODE = 0;
+    private static final int MOVER_WINS = 1;
+    private static final int MOVER_LOSES = 2;
+
+    private final SolverTable table;
+    // The moves and the numbers of the children, indexed by ply. A ply is allocated when it is reached
+    private int[][] moves = new int[0][];
+    private int[][] proofNumbers = new int[0][];
+    private int[][] disproofNumbers = new int[0][];
+    private int[] threats = new int[0];
+    private int rootCount;
+    private int attacker;
+    private long nodes;
+    private long nodeLimit;
+    private volatile boolean shouldStop;
+
+    /**
+     * @param megabytes The memory budget of the transposition table in MB
+     */
+    public Solver(int megabytes) {
+        this.table = new SolverTable(megabytes);
+    }
+
+    /**
+     * Solves a position
+     *
+     * @param position  The position, which is not changed
+     * @param nodeLimit The maximum amount of nodes of both searches together
+     * @return The result for the side to move, which is unknown if the limit was reached or the solver was stopped
+     */
+    public Solution solve(Board position, long nodeLimit) {
+        // The solver needs every empty square as a move, so it works on its own copy.
+        // All rotations and mirror images of a position share one table entry
+        Board board = new Board(position);
+        board.setRadius(0);
+        board.setSymmetryTracking(true);
+
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+
+        final int squares = board.getSize() * board.getSize();
+        if (threats.length != squares) {
+            moves = new int[squares + 1][];
+            proofNumbers = new int[squares + 1][];
+            disproofNumbers = new int[squares + 1][];
+            threats = new int[squares];
+        }
+
+        final int side = board.getSideToMove();
+
+        // Does the side to move win?
+        if (prove(board, side)) {
+            return new Solution(Solution.WIN, findMove(board, proofNumbers[0], true), nodes);
+        }
+        if (isAborted()) {
+            return new Solution(Solution.UNKNOWN, Move.NONE, nodes);
+        }
+
+        // Does the other side win? If not, the side to move holds the draw with a move that disproves it
+        if (prove(board, side ^ 3)) {
+            return new Solution(Solution.LOSS, Move.NONE, nodes);
+        }
+        if (isAborted()) {
+            return new Solution(Solution.UNKNOWN, Move.NONE, nodes);
+        }
+        return new Solution(Solution.DRAW, findMove(board, disproofNumbers[0], false), nodes);
+    }
+
+    /**
+     * Stops a running solve from another thread, the result is unknown.
+     * Every following solve stops right away until {@link #prepare()} is called
+     */
+    public void stop() {
+        shouldStop = true;
+    }
+
+    /**
+     * Resets the stop flag before a solve is queued, so a stop that arrives before the solve started still counts
+     */
+    public void prepare() {
+        shouldStop = false;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The amount of positions the transposition table can hold
+     */
+    public int getCapacity() {
+        return table.capacity();
+    }
+
+    /**
+     * Runs one proof number search from the root
+     *
+     * @param board    The position
+     * @param attacker The side that tries to win
+     * @return If the win of the attacker was proven
+     */
+    private boolean prove(Board board, int attacker) {
+        this.attacker = attacker;
+        table.clear();
+
+        final long result = search(board, 0, INFINITY, INFINITY);
+        return proofNumber(result) == 0;
+    }
+
+    /**
+     * Expands the node until one of its numbers reaches its threshold
+     *
+     * @return The proof number in the high and the disproof number in the low 32 bits
+     */
+    private long search(Board board, int ply, int proofThreshold, int disproofThreshold) {
+        final long startNodes = nodes++;
+        final boolean orNode = board.getSideToMove() == attacker;
+
+        if (moves[ply] == null) {
+            final int squares = board.getSize() * board.getSize();
+            moves[ply] = new int[squares];
+            proofNumbers[ply] = new int[squares];
+            disproofNumbers[ply] = new int[squares];
+        }
+
+        final int[] moves = this.moves[ply];
+        final int[] proofNumbers = this.proofNumbers[ply];
+        final int[] disproofNumbers = this.disproofNumbers[ply];
+
+        final int count = generate(board, moves);
+        if (ply == 0) {
+            rootCount = count;
+        }
+
+        if (count < 0) {
+            // The node is decided, a won node of the attacker is proven and everything else disproven
+            final boolean proven = (count == -MOVER_WINS) == orNode;
+            final long result = proven ? pack(0, INFINITY) : pack(INFINITY, 0);
+            table.store(board.getCanonicalKey(), proofNumber(result), disproofNumber(result), 1);
+            return result;
+        }
+
+        // Look up the children, a child that was never searched counts as a single leaf
+        for (int i = 0; i < count; i++) {
+            final int entry = table.find(childKey(board, moves[i]));
+            proofNumbers[i] = entry < 0 ? 1 : table.proofNumber(entry);
+            disproofNumbers[i] = entry < 0 ? 1 : table.disproofNumber(entry);
+        }
+
+        int proofNumber, disproofNumber;
+        while (true) {
+            // An OR node needs one proven child, an AND node needs all children proven
+            int best = 0;
+            int second = INFINITY;
+            int sum = 0;
+
+            final int[] minimized = orNode ? proofNumbers : disproofNumbers;
+            final int[] summed = orNode ? disproofNumbers : proofNumbers;
+            for (int i = 0; i < count; i++) {
+                if (minimized[i] < minimized[best]) {
+                    second = minimized[best];
+                    best = i;
+                } else if (i != best && minimized[i] < second) {
+                    second = minimized[i];
+                }
+                sum = add(sum, summed[i]);
+            }
+
+            proofNumber = orNode ? proofNumbers[best] : sum;
+            disproofNumber = orNode ? sum : disproofNumbers[best];
+
+            if (proofNumber >= proofThreshold || disproofNumber >= disproofThreshold || isAborted()) {
+                break;
+            }
+
+            // The child may use the budget until it is no longer the best child
+            final int childProofThreshold, childDisproofThreshold;
+            if (orNode) {
+                childProofThreshold = Math.min(proofThreshold, add(second, 1));
+                childDisproofThreshold = add(disproofThreshold - disproofNumber, disproofNumbers[best]);
+            } else {
+                childProofThreshold = add(proofThreshold - proofNumber, proofNumbers[best]);
+                childDisproofThreshold = Math.min(disproofThreshold, add(second, 1));
+            }
+
+            board.makeMove(moves[best]);
+            final long child = search(board, ply + 1, childProofThreshold, childDisproofThreshold);
+            board.unmakeMove(moves[best]);
+
+            proofNumbers[best] = proofNumber(child);
+            disproofNumbers[best] = disproofNumber(child);
+        }
+
+        table.store(board.getCanonicalKey(), proofNumber, disproofNumber, nodes - startNodes);
+        return pack(proofNumber, disproofNumber);
+    }
+
+    /**
+     * Computes the canonical key of a child without making the move
+     *
+     * @param board The position
+     * @param move  The encoded move
+     * @return The smallest key of all rotations and mirror images of the child
+     */
+    private static long childKey(Board board, int move) {
+        final Symmetry symmetry = board.getSymmetry();
+        final int index = Move.getX(move) * board.getSize() + Move.getY(move);
+        final int mover = board.getSideToMove();
+
+        long best = Long.MAX_VALUE;
+        for (int transform = 0; transform < Symmetry.TRANSFORMS; transform++) {
+            final long key = board.getKey(transform) ^ Zobrist.SIDE_KEY
+                    ^ Zobrist.piece(mover, symmetry.transformSquare(transform, index));
+            best = Math.min(best, key);
+        }
+        return best;
+    }
+
+    /**
+     * Generates the moves of a node, or decides the node without searching it
+     *
+     * @param board The position
+     * @param moves The buffer for the encoded moves
+     * @return The amount of moves, or -MOVER_WINS or -MOVER_LOSES if the node is decided
+     */
+    private int generate(Board board, int[] moves) {
+        final int mover = board.getSideToMove();
+        final int other = mover ^ 3;
+        final int winningSize = board.getWinningSize();
+
+        final int decided = decide(board, mover);
+        if (decided != UNKNOWN_NODE) {
+            return -decided;
+        }
+
+        // The other side threatens to complete a line, only a block can be played
+        final int threats = board.getThreatMoves(other, winningSize - 1, moves, 0);
+        if (threats >= 2) {
+            return -MOVER_LOSES;
+        }
+        if (threats == 1) {
+            return 1;
+        }
+
+        return board.generateLegalMoves(moves);
+    }
+
+    /**
+     * Decides the positions that don't need a search
+     *
+     * @return MOVER_WINS, MOVER_LOSES or UNKNOWN_NODE
+     */
+    private int decide(Board board, int mover) {
+        final int other = mover ^ 3;
+
+        if (board.hasWin(other)) {
+            return MOVER_LOSES;
+        }
+        if (board.hasWin(mover)) {
+            return MOVER_WINS;
+        }
+
+        // The attacker can't complete any line anymore, so this is at best a draw for it
+        if (board.isFull() || board.getLiveWindowCount(attacker) == 0) {
+            return attacker == mover ? MOVER_LOSES : MOVER_WINS;
+        }
+
+        // We complete a line with the next move
+        if (board.getThreatMoves(mover, board.getWinningSize() - 1, threats, 0) > 0) {
+            return MOVER_WINS;
+        }
+
+        return UNKNOWN_NODE;
+    }
+
+    /**
+     * Finds the root move that decided the last search
+     *
+     * @param board   The root position
+     * @param numbers The proof numbers of the root moves for a proof, or the disproof numbers for a disproof
+     * @param proof   If the last search was a proof
+     * @return The first root move with a number of 0. If the root was decided without a search,
+     * the move that completes a line for a proof and any move for a disproof
+     */
+    private int findMove(Board board, int[] numbers, boolean proof) {
+        if (rootCount < 0) {
+            final int count = proof
+                    ? board.getThreatMoves(board.getSideToMove(), board.getWinningSize() - 1, threats, 0)
+                    : board.isGameOver() ? 0 : board.generateLegalMoves(threats);
+            return count > 0 ? threats[0] : Move.NONE;
+        }
+
+        for (int i = 0; i < rootCount; i++) {
+            if (numbers[i] == 0) {
+                return moves[0][i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    private boolean isAborted() {
+        return shouldStop || nodes >= nodeLimit;
+    }
+
+    private static int add(int a, int b) {
+        return (int) Math.min(INFINITY, (long) a + b);
+    }
+
+    private static long pack(int proofNumber, int disproofNumber) {
+        return ((long) proofNumber << 32) | disproofNumber;
+    }
+
+    private static int proofNumber(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int disproofNumber(long packed) {
+        return (int) packed;
+    }
+}
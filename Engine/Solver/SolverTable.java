@@ -0,0 +1,116 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.Solver;
+
+import java.util.Arrays;
+
+/**
+ * The transposition table of the proof number search, which never grows beyond its memory budget.
+ * Two entries share a bucket, a new position replaces the entry with the smaller subtree,
+ * so the expensive results survive while the table is full
+ */
+final class SolverTable {
+    // key, proof number, disproof number and work
+    private static final int ENTRY_SIZE = 8 + 4 + 4 + 4;
+
+    private final long[] keys;
+    private final int[] proofNumbers;
+    private final int[] disproofNumbers;
+    // The amount of nodes that were spent below the entry, 0 marks an empty entry
+    private final int[] work;
+    private final int mask;
+
+    /**
+     * @param megabytes The memory budget in MB
+     */
+    SolverTable(int megabytes) {
+        final long budget = Math.max(1, megabytes) * 1024L * 1024L / ENTRY_SIZE;
+
+        // The largest power of two that fits into the budget
+        final int entries = (int) Long.highestOneBit(Math.min(budget, 1L << 30));
+
+        this.keys = new long[entries];
+        this.proofNumbers = new int[entries];
+        this.disproofNumbers = new int[entries];
+        this.work = new int[entries];
+        this.mask = (entries - 1) & ~1;
+    }
+
+    /**
+     * @param key The key of the position
+     * @return The index of the entry, or -1 if the position is not stored
+     */
+    int find(long key) {
+        final int base = (int) key & mask;
+
+        for (int i = base; i < base + 2 && i < keys.length; i++) {
+            if (work[i] != 0 && keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int proofNumber(int index) {
+        return proofNumbers[index];
+    }
+
+    int disproofNumber(int index) {
+        return disproofNumbers[index];
+    }
+
+    /**
+     * Stores the numbers of a position
+     *
+     * @param key            The key of the position
+     * @param proofNumber    The proof number
+     * @param disproofNumber The disproof number
+     * @param nodes          The amount of nodes that were spent on the position
+     */
+    void store(long key, int proofNumber, int disproofNumber, long nodes) {
+        final int base = (int) key & mask;
+        int replace = base;
+
+        for (int i = base; i < base + 2 && i < keys.length; i++) {
+            if (work[i] == 0 || keys[i] == key) {
+                replace = i;
+                break;
+            }
+            if (work[i] < work[replace]) {
+                replace = i;
+            }
+        }
+
+        keys[replace] = key;
+        proofNumbers[replace] = proofNumber;
+        disproofNumbers[replace] = disproofNumber;
+        work[replace] = (int) Math.min(Integer.MAX_VALUE, Math.max(1, nodes));
+    }
+
+    void clear() {
+        Arrays.fill(work, 0);
+    }
+
+    /**
+     * @return The amount of entries
+     */
+    int capacity() {
+        return keys.length;
+    }
+}
@@ -23,11 +23,12 @@ import src.Engine.Movegen.Move;
 
 public class Stack {
 
-    public Move killer;
+    // Encoded killer move
+    public int killer;
     public int threadCounter;
 
     public Stack() {
-        this.killer = Move.NULL_MOVE;
+        this.killer = Move.NONE;
         this.threadCounter = 0;
     }
 }
@@ -0,0 +1,142 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.Tablebase;
+
+import src.Engine.Movegen.Symmetry;
+
+import java.util.Arrays;
+
+/**
+ * Turns positions of a small board into codes. A position is given as two masks with one bit per square
+ * for the X and the O stones, its code is the base 3 number with one digit per square (0 empty, 1 X, 2 O).
+ * The 8 rotations and mirror images of a position, see {@link Symmetry}, are the same position,
+ * so they share the smallest of their codes, the canonical code
+ */
+final class Encoding {
+    // 3^16 still fits into an int
+    static final int MAX_SQUARES = 16;
+
+    final int size;
+    final int squares;
+    // The X weight of every square under every transformation, O stones weigh twice as much
+    private final int[][] weights;
+    // One mask per line of winningSize squares
+    private final int[] lines;
+
+    /**
+     * @param size        The size of the board
+     * @param winningSize The amount of stones in a row that are needed for a win
+     */
+    Encoding(int size, int winningSize) {
+        if (size * size > MAX_SQUARES || winningSize < 1 || winningSize > size) {
+            throw new IllegalArgumentException("A tablebase needs a board of at most " + MAX_SQUARES
+                    + " squares and a win length up to the board size, got " + size + "x" + size + " with " + winningSize);
+        }
+
+        this.size = size;
+        this.squares = size * size;
+
+        final int[] powers = new int[squares];
+        for (int i = 0, power = 1; i < squares; i++, power *= 3) {
+            powers[i] = power;
+        }
+
+        final Symmetry symmetry = Symmetry.of(size);
+        this.weights = new int[Symmetry.TRANSFORMS][squares];
+        for (int transform = 0; transform < Symmetry.TRANSFORMS; transform++) {
+            for (int square = 0; square < squares; square++) {
+                weights[transform][square] = powers[symmetry.transformSquare(transform, square)];
+            }
+        }
+
+        final int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int[] lines = new int[4 * squares];
+        int count = 0;
+        for (int[] direction : directions) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    final int endX = x + direction[0] * (winningSize - 1);
+                    final int endY = y + direction[1] * (winningSize - 1);
+                    if (endX >= size || endY < 0 || endY >= size) {
+                        continue;
+                    }
+
+                    int line = 0;
+                    for (int i = 0; i < winningSize; i++) {
+                        line |= 1 << ((x + direction[0] * i) * size + y + direction[1] * i);
+                    }
+                    lines[count++] = line;
+                }
+            }
+        }
+        this.lines = Arrays.copyOf(lines, count);
+    }
+
+    /**
+     * @param x The X stones
+     * @param o The O stones
+     * @return The smallest code of all transformations of the position
+     */
+    int canonical(int x, int o) {
+        int best = Integer.MAX_VALUE;
+
+        for (int[] weight : weights) {
+            int code = 0;
+            for (int bits = x; bits != 0; bits &= bits - 1) {
+                code += weight[Integer.numberOfTrailingZeros(bits)];
+            }
+            for (int bits = o; bits != 0; bits &= bits - 1) {
+                code += 2 * weight[Integer.numberOfTrailingZeros(bits)];
+            }
+            best = Math.min(best, code);
+        }
+
+        return best;
+    }
+
+    /**
+     * Decodes a code into the two masks
+     *
+     * @return The X stones in the low and the O stones in the high 32 bits
+     */
+    long decode(int code) {
+        int x = 0, o = 0;
+        for (int i = 0; i < squares; i++, code /= 3) {
+            if (code % 3 == 1) {
+                x |= 1 << i;
+            } else if (code % 3 == 2) {
+                o |= 1 << i;
+            }
+        }
+        return (x & 0xFFFFFFFFL) | ((long) o << 32);
+    }
+
+    /**
+     * @param stones The stones of one side
+     * @return If the stones complete a line
+     */
+    boolean hasLine(int stones) {
+        for (int line : lines) {
+            if ((stones & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
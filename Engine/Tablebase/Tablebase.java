@@ -0,0 +1,254 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.Tablebase;
+
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static src.Engine.Types.O_SIDE;
+import static src.Engine.Types.X_SIDE;
+
+/**
+ * The exact result of every position of a small board, read from a file written by {@link TablebaseGenerator}.
+ * The file is memory mapped, so opening it is instant and all searches share the same pages.
+ * <p>
+ * File layout, all numbers are big endian:
+ * <pre>
+ *     int  MAGIC
+ *     int  board size
+ *     int  win length
+ *     int  count
+ *     int  canonical codes, count times and sorted
+ *     byte values, count times in the order of the codes
+ * </pre>
+ * A value stores the result for the side to move in the bits 0 - 1 and the amount of plies
+ * until the game ends with best play in the bits 2 - 7
+ */
+public class Tablebase {
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int DRAW = 3;
+
+    // Returned by probe if the position is not in the tablebase
+    public static final int NOT_FOUND = -1;
+
+    static final int MAGIC = 0x54544231;
+    static final int HEADER_SIZE = 16;
+
+    private final Encoding encoding;
+    private final int winningSize;
+    private final int count;
+    private final MappedByteBuffer buffer;
+
+    private Tablebase(Encoding encoding, int winningSize, int count, MappedByteBuffer buffer) {
+        this.encoding = encoding;
+        this.winningSize = winningSize;
+        this.count = count;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps a tablebase file into memory
+     *
+     * @param path The file
+     * @return The tablebase
+     * @throws IOException If the file can't be read or is no tablebase
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("The file " + path + " is no tablebase");
+            }
+
+            final int size = buffer.getInt(4);
+            final int winningSize = buffer.getInt(8);
+            final int count = buffer.getInt(12);
+            if (channel.size() != HEADER_SIZE + 5L * count) {
+                throw new IOException("The tablebase " + path + " is truncated");
+            }
+
+            return new Tablebase(new Encoding(size, winningSize), winningSize, count, buffer);
+        }
+    }
+
+    /**
+     * Looks up the position
+     *
+     * @param board The position
+     * @return The value for the side to move, or {@link #NOT_FOUND} if the tablebase has a different board,
+     * or the position can't be reached from the empty board with X to move first
+     */
+    public int probe(Board board) {
+        if (board.getSize() != encoding.size || board.getWinningSize() != winningSize) {
+            return NOT_FOUND;
+        }
+
+        int x = 0, o = 0;
+        for (int i = 0; i < encoding.squares; i++) {
+            if (board.get(i / encoding.size, i % encoding.size, X_SIDE)) {
+                x |= 1 << i;
+            } else if (board.get(i / encoding.size, i % encoding.size, O_SIDE)) {
+                o |= 1 << i;
+            }
+        }
+
+        // X starts, so X is to move exactly when both sides have the same amount of stones
+        final int difference = Integer.bitCount(x) - Integer.bitCount(o);
+        if (difference != (board.getSideToMove() == X_SIDE ? 0 : 1)) {
+            return NOT_FOUND;
+        }
+
+        return find(encoding.canonical(x, o));
+    }
+
+    /**
+     * Binary searches the sorted codes
+     *
+     * @param code The canonical code
+     * @return The value or {@link #NOT_FOUND}
+     */
+    private int find(int code) {
+        int low = 0, high = count - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int value = buffer.getInt(HEADER_SIZE + 4 * middle);
+
+            if (value < code) {
+                low = middle + 1;
+            } else if (value > code) {
+                high = middle - 1;
+            } else {
+                return buffer.get(HEADER_SIZE + 4 * count + middle) & 0xFF;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Finds the best move with the tablebase: the fastest win, otherwise the fastest draw, otherwise the slowest loss
+     *
+     * @param board The position, which is unchanged afterward
+     * @return The encoded move, or {@link Move#NONE} if the position is not in the tablebase or the game is over
+     */
+    public int bestMove(Board board) {
+        if (board.isGameOver() || probe(board) == NOT_FOUND) {
+            return Move.NONE;
+        }
+
+        int bestMove = Move.NONE;
+        int bestValue = NOT_FOUND;
+
+        for (int x = 0; x < encoding.size; x++) {
+            for (int y = 0; y < encoding.size; y++) {
+                if (!board.isEmpty(x, y)) {
+                    continue;
+                }
+
+                board.makeMove(x, y);
+                final int child = probe(board);
+                board.unmakeMove(x, y);
+
+                if (child == NOT_FOUND) {
+                    continue;
+                }
+
+                final int value = flip(child);
+                if (bestMove == Move.NONE || isBetter(value, bestValue)) {
+                    bestMove = Move.encode(x, y);
+                    bestValue = value;
+                }
+            }
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Turns the value of a child into the value of the parent, the result flips and the game takes one ply longer
+     *
+     * @param child The value of the child for its side to move
+     * @return The value for the side that made the move
+     */
+    static int flip(int child) {
+        final int result = result(child);
+        return value(result == WIN ? LOSS : result == LOSS ? WIN : DRAW, distance(child) + 1);
+    }
+
+    /**
+     * @return If the first value is better than the second for the side to move
+     */
+    static boolean isBetter(int value, int other) {
+        final int result = result(value), otherResult = result(other);
+        if (result != otherResult) {
+            return rank(result) > rank(otherResult);
+        }
+        // Win fast, lose slowly
+        return result == LOSS ? distance(value) > distance(other) : distance(value) < distance(other);
+    }
+
+    private static int rank(int result) {
+        return result == WIN ? 2 : result == DRAW ? 1 : 0;
+    }
+
+    static int value(int result, int distance) {
+        return result | (distance << 2);
+    }
+
+    /**
+     * @param value A value from {@link #probe(Board)}
+     * @return WIN, LOSS or DRAW for the side to move
+     */
+    public static int result(int value) {
+        return value & 0x3;
+    }
+
+    /**
+     * @param value A value from {@link #probe(Board)}
+     * @return The amount of plies until the game ends with best play
+     */
+    public static int distance(int value) {
+        return value >>> 2;
+    }
+
+    public int getSize() {
+        return encoding.size;
+    }
+
+    public int getWinningSize() {
+        return winningSize;
+    }
+
+    /**
+     * @return The amount of positions, without the rotations and mirror images
+     */
+    public int getCount() {
+        return count;
+    }
+}
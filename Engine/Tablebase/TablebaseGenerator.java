@@ -0,0 +1,276 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine.Tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static src.Engine.Tablebase.Tablebase.DRAW;
+import static src.Engine.Tablebase.Tablebase.LOSS;
+
+/**
+ * Generates a tablebase for a small board.
+ * <p>
+ * Every position has exactly one stone more than its parent, so the positions fall into layers by their amount
+ * of stones. The layers are enumerated forward from the empty board, only keeping the canonical code of every
+ * position. The values are then computed backward from the full board: a position in a layer only
+ * depends on the positions of the next layer, which are already known. Both passes split every layer
+ * into chunks that are handled by all threads
+ */
+public class TablebaseGenerator {
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Encoding encoding;
+    private final int winningSize;
+    private final int threads;
+    // The sorted canonical codes and the values of every layer, indexed by the amount of stones
+    private final int[][] layers;
+    private final byte[][] values;
+
+    /**
+     * @param size        The size of the board
+     * @param winningSize The amount of stones in a row that are needed for a win
+     * @param threads     The amount of threads that are used
+     */
+    public TablebaseGenerator(int size, int winningSize, int threads) {
+        this.encoding = new Encoding(size, winningSize);
+        this.winningSize = winningSize;
+        this.threads = Math.max(1, threads);
+        this.layers = new int[encoding.squares + 1][];
+        this.values = new byte[encoding.squares + 1][];
+    }
+
+    /**
+     * Enumerates and solves all positions and writes them to a file
+     *
+     * @param path The file, which is overwritten
+     * @return The amount of positions
+     * @throws IOException If the file can't be written
+     */
+    public int generate(Path path) throws IOException {
+        enumerate();
+        solve();
+        return write(path);
+    }
+
+    /**
+     * Enumerates the canonical positions of every layer that can be reached from the empty board
+     */
+    private void enumerate() {
+        layers[0] = new int[]{0};
+
+        for (int stones = 0; stones < encoding.squares; stones++) {
+            final int[] parents = layers[stones];
+            final boolean xToMove = stones % 2 == 0;
+            final int emptySquares = encoding.squares - stones;
+            final int[][] chunks = new int[chunkCount(parents.length)][];
+
+            parallel(chunks.length, chunk -> {
+                final int start = chunk * CHUNK_SIZE;
+                final int end = Math.min(parents.length, start + CHUNK_SIZE);
+                int[] children = new int[(end - start) * emptySquares];
+                int count = 0;
+
+                for (int i = start; i < end; i++) {
+                    final long masks = encoding.decode(parents[i]);
+                    final int x = (int) masks, o = (int) (masks >>> 32);
+
+                    // The game is over, nothing follows
+                    if (encoding.hasLine(x) || encoding.hasLine(o)) {
+                        continue;
+                    }
+
+                    for (int square = 0; square < encoding.squares; square++) {
+                        final int bit = 1 << square;
+                        if (((x | o) & bit) == 0) {
+                            children[count++] = xToMove ? encoding.canonical(x | bit, o) : encoding.canonical(x, o | bit);
+                        }
+                    }
+                }
+
+                Arrays.sort(children, 0, count);
+                chunks[chunk] = unique(children, count);
+            });
+
+            int total = 0;
+            for (int[] chunk : chunks) {
+                total += chunk.length;
+            }
+
+            int[] children = new int[total];
+            int offset = 0;
+            for (int[] chunk : chunks) {
+                System.arraycopy(chunk, 0, children, offset, chunk.length);
+                offset += chunk.length;
+            }
+
+            Arrays.parallelSort(children);
+            layers[stones + 1] = unique(children, total);
+        }
+    }
+
+    /**
+     * Computes the value of every position, from the full board back to the empty board
+     */
+    private void solve() {
+        for (int stones = encoding.squares; stones >= 0; stones--) {
+            final int[] positions = layers[stones];
+            final int[] children = stones < encoding.squares ? layers[stones + 1] : null;
+            final byte[] childValues = stones < encoding.squares ? values[stones + 1] : null;
+            final boolean xToMove = stones % 2 == 0;
+            final byte[] layerValues = new byte[positions.length];
+
+            parallel(chunkCount(positions.length), chunk -> {
+                final int end = Math.min(positions.length, chunk * CHUNK_SIZE + CHUNK_SIZE);
+
+                for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                    final long masks = encoding.decode(positions[i]);
+                    final int x = (int) masks, o = (int) (masks >>> 32);
+
+                    // The side that moved last completed a line, or the board is full
+                    if (encoding.hasLine(xToMove ? o : x)) {
+                        layerValues[i] = (byte) Tablebase.value(LOSS, 0);
+                        continue;
+                    }
+                    if (children == null) {
+                        layerValues[i] = (byte) Tablebase.value(DRAW, 0);
+                        continue;
+                    }
+
+                    int best = Tablebase.NOT_FOUND;
+                    for (int square = 0; square < encoding.squares; square++) {
+                        final int bit = 1 << square;
+                        if (((x | o) & bit) != 0) {
+                            continue;
+                        }
+
+                        final int child = xToMove ? encoding.canonical(x | bit, o) : encoding.canonical(x, o | bit);
+                        final int value = Tablebase.flip(childValues[Arrays.binarySearch(children, child)]);
+                        if (best == Tablebase.NOT_FOUND || Tablebase.isBetter(value, best)) {
+                            best = value;
+                        }
+                    }
+                    layerValues[i] = (byte) best;
+                }
+            });
+
+            values[stones] = layerValues;
+        }
+    }
+
+    /**
+     * Writes all layers into one file, sorted by the code
+     *
+     * @return The amount of positions
+     */
+    private int write(Path path) throws IOException {
+        int count = 0;
+        for (int[] layer : layers) {
+            count += layer.length;
+        }
+
+        // The code is unique over all layers, so sorting code and value together sorts the whole file
+        long[] entries = new long[count];
+        int index = 0;
+        for (int stones = 0; stones < layers.length; stones++) {
+            for (int i = 0; i < layers[stones].length; i++) {
+                entries[index++] = ((long) layers[stones][i] << 8) | (values[stones][i] & 0xFF);
+            }
+        }
+        Arrays.parallelSort(entries);
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(Tablebase.MAGIC);
+            output.writeInt(encoding.size);
+            output.writeInt(winningSize);
+            output.writeInt(count);
+
+            for (long entry : entries) {
+                output.writeInt((int) (entry >>> 8));
+            }
+            for (long entry : entries) {
+                output.writeByte((int) entry);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param stones The amount of stones
+     * @return The amount of positions with this many stones, which is only known after generating
+     */
+    public int getLayerSize(int stones) {
+        return layers[stones] == null ? 0 : layers[stones].length;
+    }
+
+    private static int chunkCount(int length) {
+        return (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Removes the duplicates from the first count codes, which are sorted
+     *
+     * @return A new array with the unique codes
+     */
+    private static int[] unique(int[] codes, int count) {
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            if (length == 0 || codes[length - 1] != codes[i]) {
+                codes[length++] = codes[i];
+            }
+        }
+        return Arrays.copyOf(codes, length);
+    }
+
+    /**
+     * Runs the tasks on all threads, every thread takes the next task until none is left
+     *
+     * @param tasks The amount of tasks
+     * @param task  The task, which gets the index of the task
+     */
+    private void parallel(int tasks, IntConsumer task) {
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < tasks; i = next.getAndIncrement()) {
+                task.accept(i);
+            }
+        };
+
+        Thread[] workers = new Thread[Math.min(threads, tasks)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(worker, "Tablebase " + i);
+            workers[i].start();
+        }
+
+        for (Thread thread : workers) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package src.Engine;
+
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+import src.Engine.NNUE.Network;
+import src.Engine.Tablebase.Tablebase;
+
+/**
+ * Lazy SMP: every thread runs its own {@link Search} on its own copy of the board,
+ * and the threads only share the transposition table and the evaluation cache.
+ * The main search (thread 0) prints the info lines and its best move is returned.
+ */
+public final class ThreadPool {
+    private final TranspositionTable transpositionTable;
+    private final EvalCache evalCache;
+    private Search[] searches;
+    private int threatMode = 1;
+    private Tablebase tablebase = null;
+    private Network network = null;
+
+    public ThreadPool(int threads, TranspositionTable transpositionTable, EvalCache evalCache) {
+        this.transpositionTable = transpositionTable;
+        this.evalCache = evalCache;
+        setThreads(threads);
+    }
+
+    /**
+     * Sets the amount of search threads, including the main thread
+     *
+     * @param threads The amount of threads
+     */
+    public void setThreads(int threads) {
+        searches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(transpositionTable, evalCache);
+            searches[i].setThreadPool(this, i);
+            searches[i].setThreatMode(threatMode);
+            searches[i].setTablebase(tablebase);
+            searches[i].setNetwork(network);
+        }
+    }
+
+    /**
+     * Sets the tablebase of all threads, see {@link Search#setTablebase(Tablebase)}
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        for (Search search : searches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Sets the evaluation network of all threads, see {@link Search#setNetwork(Network)}
+     */
+    public void setNetwork(Network network) {
+        this.network = network;
+        for (Search search : searches) {
+            search.setNetwork(network);
+        }
+    }
+
+    /**
+     * Sets where the threat search is used, see {@link Search#setThreatMode(int)}
+     */
+    public void setThreatMode(int threatMode) {
+        this.threatMode = threatMode;
+        for (Search search : searches) {
+            search.setThreatMode(threatMode);
+        }
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * @return The search of the main thread
+     */
+    public Search getMainSearch() {
+        return searches[0];
+    }
+
+    public void initHistory(Board board) {
+        for (Search search : searches) {
+            search.initHistory(board);
+        }
+    }
+
+    /**
+     * Resets the stop flags of all threads. This has to be called before a search is started,
+     * a stop that arrives afterward stops that search even if it has not started yet
+     */
+    public void prepare() {
+        for (Search search : searches) {
+            search.prepare();
+        }
+    }
+
+    /**
+     * Searches the position with all threads until the time is up or {@link #stop()} is called
+     *
+     * @param board     The position, only the main thread searches on this board
+     * @param thinkTime The time for this move in milliseconds
+     * @param minimal   If no info lines should be printed
+     * @return The best move of the main thread
+     */
+    public Move getBestMove(Board board, long thinkTime, boolean minimal) {
+        transpositionTable.newSearch();
+        Thread[] helpers = startHelpers(board);
+        Move bestMove = searches[0].iterativeDeepening(board, thinkTime, minimal);
+        stopHelpers(helpers);
+        return bestMove;
+    }
+
+    /**
+     * Searches the position with all threads until the main thread decides to stop or {@link #stop()} is called
+     *
+     * @param board       The position, only the main thread searches on this board
+     * @param timeManager The limits of the main thread, the helpers run until the main thread is done
+     * @param minimal     If no info lines should be printed
+     * @return The best move of the main thread
+     */
+    public Move getBestMove(Board board, TimeManager timeManager, boolean minimal) {
+        transpositionTable.newSearch();
+        Thread[] helpers = startHelpers(board);
+        Move bestMove = searches[0].iterativeDeepening(board, timeManager, minimal);
+        stopHelpers(helpers);
+        return bestMove;
+    }
+
+    /**
+     * Searches the position to a fixed depth on the main thread, while the helpers
+     * keep filling the transposition table until the main thread is done or {@link #stop()} is called
+     *
+     * @param board The position
+     * @param depth The depth of the main thread
+     * @return The best move of the main thread
+     */
+    public Move getBestMove(Board board, int depth) {
+        transpositionTable.newSearch();
+        Thread[] helpers = startHelpers(board);
+        Move bestMove = searches[0].fixedDepth(board, depth);
+        stopHelpers(helpers);
+        return bestMove;
+    }
+
+    /**
+     * Stops all threads, this can be called from any thread
+     */
+    public void stop() {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * @return The summed up nodes of all threads
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (Search search : searches) {
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+
+    private Thread[] startHelpers(Board board) {
+        Thread[] helpers = new Thread[searches.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            final Search search = searches[i + 1];
+            final Board copy = new Board(board);
+            helpers[i] = new Thread(() -> search.iterativeDeepening(copy, TimeManager.infinite(), true));
+            helpers[i].start();
+        }
+        return helpers;
+    }
+
+    private void stopHelpers(Thread[] helpers) {
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+        }
+
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Prints the time to reach a fixed depth on the bench positions for 1, 2, 4, 8 and 16 threads.
+     * The amount of threads is restored afterward
+     *
+     * @param depth The depth of the main thread
+     */
+    public void scaling(int depth) {
+        final int previousThreads = searches.length;
+
+        System.out.println("Threads | Time (ms) | Nodes | Speedup");
+
+        double singleThreadTime = 0;
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            setThreads(threads);
+
+            long nodes = 0;
+            long startTime = System.nanoTime();
+
+            for (String position : Search.BENCH_POSITIONS) {
+                transpositionTable.clear();
+                Board board = new Board(10, 5);
+                board.setBoardNotation(position);
+                initHistory(board);
+                prepare();
+                getBestMove(board, depth);
+                nodes += getNodes();
+            }
+
+            double time = (System.nanoTime() - startTime) / 1_000_000.0;
+            if (threads == 1) {
+                singleThreadTime = time;
+            }
+
+            System.out.printf("%7d | %9.0f | %5d | %.2f%n", threads, time, nodes, singleThreadTime / time);
+        }
+
+        setThreads(previousThreads);
+    }
+}
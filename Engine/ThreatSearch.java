@@ -0,0 +1,228 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine;
+
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+import src.Engine.Movegen.Patterns;
+
+/**
+ * Searches only forcing moves to find a forced win for the side to move.
+ * A four is a window with one stone missing, which the defender has to block.
+ * A three is a window with two stones missing.
+ * <ul>
+ *     <li>VCF (victory by continuous fours): the attacker only plays fours, so every reply of the defender is forced
+ *     and a found win is a proof</li>
+ *     <li>VCT (victory by continuous threats): the attacker also plays threes. The defender only tries the empty squares
+ *     of the attacker's threes and fours and its own fours, so a found win is very likely but not proven</li>
+ * </ul>
+ * The branching factor in threat space is tiny, so this finds deep wins that the normal search can't reach
+ */
+public class ThreatSearch {
+    private int[][] buffers = new int[0][];
+    private long nodes;
+    private long nodeLimit;
+    private boolean vct;
+    private int bestMove;
+    private int length;
+
+    /**
+     * Searches for a forced win of the side to move
+     *
+     * @param board     The position, which is unchanged afterward
+     * @param maxDepth  The maximum amount of plies of the win
+     * @param nodeLimit The maximum amount of nodes
+     * @param vct       If threes are tried as well, otherwise only fours are tried
+     * @return The encoded first move of the win, or {@link Move#NONE} if no win was found
+     */
+    public int findWin(Board board, int maxDepth, long nodeLimit, boolean vct) {
+        // Below a win length of 3 there are no threats that can be blocked
+        if (board.getWinningSize() < 3 || board.isGameOver()) {
+            return Move.NONE;
+        }
+
+        final int squares = board.getSize() * board.getSize();
+        if (buffers.length < maxDepth + 2 || buffers[0].length < squares) {
+            buffers = new int[maxDepth + 2][squares];
+        }
+
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.vct = vct;
+        this.bestMove = Move.NONE;
+        this.length = 0;
+
+        return attack(board, board.getSideToMove(), maxDepth, 0) ? bestMove : Move.NONE;
+    }
+
+    /**
+     * @return The amount of plies of the last found win, including the winning move
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * The attacker is to move and tries every threat
+     *
+     * @return If the attacker wins
+     */
+    private boolean attack(Board board, int attacker, int depth, int ply) {
+        nodes++;
+
+        final int defender = attacker ^ 3;
+        final int winningSize = board.getWinningSize();
+        final int[] moves = buffers[ply];
+
+        // We can win right away
+        if (board.getThreatMoves(attacker, winningSize - 1, moves, 0) > 0) {
+            setWin(moves[0], ply, ply + 1);
+            return true;
+        }
+
+        if (depth <= 0 || nodes > nodeLimit) {
+            return false;
+        }
+
+        // The defender has a four, so we have to block it. The block only helps if it is a threat itself
+        int count = board.getThreatMoves(defender, winningSize - 1, moves, 0);
+        if (count >= 2) {
+            return false;
+        }
+
+        if (count == 0) {
+            count = board.getThreatMoves(attacker, winningSize - 2, moves, 0);
+
+            // A move with two ways to complete a line wins, the defender has no four to answer with
+            for (int i = 0; i < count; i++) {
+                if (isDoubleFour(board, attacker, moves[i])) {
+                    setWin(moves[i], ply, ply + 3);
+                    return true;
+                }
+            }
+
+            if (vct) {
+                count = board.getThreatMoves(attacker, winningSize - 3, moves, count);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            final int move = moves[i];
+
+            board.makeMove(move);
+            final boolean win = defend(board, attacker, depth - 1, ply + 1);
+            board.unmakeMove(move);
+
+            if (win) {
+                setWin(move, ply, length);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The defender is to move and tries every reply to the last threat
+     *
+     * @return If the attacker still wins
+     */
+    private boolean defend(Board board, int attacker, int depth, int ply) {
+        nodes++;
+
+        final int defender = attacker ^ 3;
+        final int winningSize = board.getWinningSize();
+        final int[] moves = buffers[ply];
+
+        // The threat didn't stop a four of the defender
+        if (board.getThreatMoves(defender, winningSize - 1, moves, 0) > 0) {
+            return false;
+        }
+
+        int count = board.getThreatMoves(attacker, winningSize - 1, moves, 0);
+
+        // Two different squares win for the attacker, only one of them can be blocked
+        if (count >= 2) {
+            length = ply + 2;
+            return true;
+        }
+
+        if (count == 0) {
+            // The last move wasn't a four, so it has to be a three for a VCT
+            if (!vct) {
+                return false;
+            }
+
+            count = board.getThreatMoves(attacker, winningSize - 2, moves, 0);
+            if (count == 0) {
+                return false;
+            }
+
+            // Block one of the threes or answer with our own four
+            count = board.getThreatMoves(defender, winningSize - 2, moves, count);
+        }
+
+        for (int i = 0; i < count; i++) {
+            final int move = moves[i];
+
+            board.makeMove(move);
+            final boolean win = attack(board, attacker, depth - 1, ply + 1);
+            board.unmakeMove(move);
+
+            if (!win) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks with the line patterns if a move creates an open four or two fours in different directions
+     *
+     * @param board The position
+     * @param side  The side that plays the move
+     * @param move  The encoded move
+     * @return If two different squares complete a line after the move
+     */
+    private static boolean isDoubleFour(Board board, int side, int move) {
+        int fours = 0;
+        for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+            final int pattern = board.getPattern(side, move, direction);
+            if (pattern == Patterns.OPEN_FOUR) {
+                return true;
+            }
+            if (pattern == Patterns.FOUR) {
+                fours++;
+            }
+        }
+        return fours >= 2;
+    }
+
+    private void setWin(int move, int ply, int length) {
+        if (ply == 0) {
+            bestMove = move;
+        }
+        this.length = length;
+    }
+}
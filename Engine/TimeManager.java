@@ -0,0 +1,112 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Engine;
+
+/**
+ * Decides how long a search may take.
+ * The soft limit is checked after every iteration, a new iteration is only started below it.
+ * The hard limit is checked inside the search and aborts it.
+ * All times are measured with {@link System#nanoTime()}
+ */
+public class TimeManager {
+    // Scales the soft limit by the amount of iterations in a row with the same best move
+    private static final double[] STABILITY_SCALE = {2.2, 1.6, 1.2, 1.0, 0.85, 0.75};
+
+    private final long startTime = System.nanoTime();
+    private final long softLimit;
+    private final long hardLimit;
+    private final boolean scaled;
+
+    private TimeManager(long softLimitMs, long hardLimitMs, boolean scaled) {
+        this.softLimit = softLimitMs * 1_000_000L;
+        this.hardLimit = hardLimitMs * 1_000_000L;
+        this.scaled = scaled;
+    }
+
+    /**
+     * Creates the limits for a move from the clock of the side to move
+     *
+     * @param time         The remaining time in milliseconds
+     * @param increment    The increment in milliseconds
+     * @param moveOverhead The time in milliseconds that gets lost per move, e.g. by sending the move to the harness
+     * @return The time manager, which starts counting now
+     */
+    public static TimeManager forClock(long time, long increment, long moveOverhead) {
+        final long available = Math.max(1, time - moveOverhead);
+
+        // The soft limit is the budget we expect to use on average, the hard limit protects the clock
+        final long soft = Math.min(available, available / 20 + increment / 2);
+        final long hard = Math.max(soft, Math.min(soft * 4, available / 4));
+
+        return new TimeManager(soft, hard, true);
+    }
+
+    /**
+     * Creates a fixed limit, the search is stopped exactly after the given time
+     *
+     * @param thinkTime The time in milliseconds
+     * @return The time manager, which starts counting now
+     */
+    public static TimeManager forMoveTime(long thinkTime) {
+        return new TimeManager(thinkTime, thinkTime, false);
+    }
+
+    /**
+     * Creates a time manager without a limit, the search only ends when it is stopped
+     *
+     * @return The time manager
+     */
+    public static TimeManager infinite() {
+        return new TimeManager(Long.MAX_VALUE / 1_000_000L, Long.MAX_VALUE / 1_000_000L, false);
+    }
+
+    /**
+     * @return If the search has to be aborted now
+     */
+    public boolean hardLimitReached() {
+        return System.nanoTime() - startTime > hardLimit;
+    }
+
+    /**
+     * Checks after a finished iteration if another iteration should be started.
+     * A stable best move that got most of the nodes lets us stop early,
+     * while a best move that keeps changing gets more time
+     *
+     * @param stability     The amount of iterations in a row with the same best move
+     * @param bestMoveNodes The fraction of the root nodes that were spent on the best move, between 0 and 1
+     * @return If the search should stop
+     */
+    public boolean softLimitReached(int stability, double bestMoveNodes) {
+        double limit = softLimit;
+
+        if (scaled) {
+            limit *= STABILITY_SCALE[Math.min(stability, STABILITY_SCALE.length - 1)];
+            limit *= (1.5 - bestMoveNodes) * 1.35;
+        }
+
+        return System.nanoTime() - startTime > Math.min(limit, hardLimit);
+    }
+
+    /**
+     * @return The time since the search started in milliseconds
+     */
+    public long elapsedMillis() {
+        return (System.nanoTime() - startTime) / 1_000_000L;
+    }
+}
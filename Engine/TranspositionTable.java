@@ -19,47 +19,72 @@
 
 package src.Engine;
 
+import src.Engine.Movegen.Move;
+
+import java.util.Arrays;
+
 import static src.Engine.Types.EVAL_MATE;
 
-public class TranspositionTable {
+public final class TranspositionTable {
     public static final byte LOWER_BOUND = 1;
     public static final byte UPPER_BOUND = 2;
     public static final byte EXACT = 3;
 
+    // Returned by probe if no matching entry was found. A written entry always has a type, so it is never 0
+    public static final long NO_ENTRY = 0;
+
     /*
-        int key: 4 bytes
-        byte type: 1 byte
-        short staticEval: 2 bytes
-        int score: 4 bytes
-        short move 2 bytes
-        short depth: 2 bytes
+        An entry is two longs: the key xor-ed with the data, followed by the data.
+        A reader only accepts an entry if both longs belong together, so a torn write
+        from another thread is seen as a miss and no locking is needed.
+
+        data layout:
+        short move:       bits  0 - 15
+        short score:      bits 16 - 31
+        short staticEval: bits 32 - 47
+        depth:            bits 48 - 55
+        type:             bits 56 - 57
+        generation:       bits 58 - 63
      */
-    private static final int ENTRY_SIZE = 15;
-    private int size;
-    private int mask;
+    private static final int ENTRY_SIZE = 16;
+
+    // Four entries fill one 64 byte cache line
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_LONGS = BUCKET_ENTRIES * 2;
+    private static final int GENERATION_MASK = 0x3F;
 
-    private Entry[] data;
+    private long[] table;
+    private int bucketMask;
+    private int generation = 0;
 
     public TranspositionTable(int size) {
-        size *= (int) (1_048_576.0 / ENTRY_SIZE);
-        this.size = Integer.highestOneBit(size);
-        this.mask = this.size - 1;
-        this.data = new Entry[this.size];
+        resize(size);
     }
 
     /**
-     * Probes the transposition table for an Entry
+     * Probes the transposition table for an Entry.
+     * The low bits of the key select the bucket and the whole key verifies the entry
      *
      * @param key The key of the current position
-     * @return If a {@link Entry} was found it returns an Entry otherwise
+     * @return The packed data of the matching entry, or {@link #NO_ENTRY}
      */
-    public Entry probe(int key) {
-        int index = key & mask;
-        return data[index];
+    public long probe(long key) {
+        final int base = ((int) key & bucketMask) * BUCKET_LONGS;
+
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            final long data = table[i + 1];
+            if (data != NO_ENTRY && (table[i] ^ data) == key) {
+                return data;
+            }
+        }
+
+        return NO_ENTRY;
     }
 
     /**
-     * Writes an {@link Entry} to the transposition table
+     * Writes an entry to the transposition table.
+     * An entry of the same position is always replaced, otherwise the entry with the
+     * lowest depth is replaced, where entries of older searches count as shallower
      *
      * @param key        The key of the current position
      * @param type       The type. Either LOWER_BOUND, UPPER_BOUND or EXACT
@@ -67,10 +92,87 @@ public class TranspositionTable {
      * @param score      The current correct adjusted score
      * @param move       The best move
      * @param depth      The current depth
+     * @return If the entry of a different position was overwritten
      */
-    public void write(int key, byte type, short staticEval, int score, short move, short depth) {
-        int index = key & mask;
-        data[index] = new Entry(key, type, staticEval, score, move, depth);
+    public boolean write(long key, byte type, short staticEval, int score, short move, short depth) {
+        final int base = ((int) key & bucketMask) * BUCKET_LONGS;
+
+        int replace = base;
+        int replaceValue = Integer.MAX_VALUE;
+
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            final long data = table[i + 1];
+
+            // Empty slot
+            if (data == NO_ENTRY) {
+                if (replaceValue > Integer.MIN_VALUE) {
+                    replace = i;
+                    replaceValue = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+
+            // Same position, we keep the old move if we have none
+            if ((table[i] ^ data) == key) {
+                if (move == Move.NONE) {
+                    move = move(data);
+                }
+                replace = i;
+                replaceValue = Integer.MIN_VALUE;
+                break;
+            }
+
+            final int age = (generation - generation(data)) & GENERATION_MASK;
+            final int value = depth(data) - 8 * age;
+            if (value < replaceValue) {
+                replace = i;
+                replaceValue = value;
+            }
+        }
+
+        final long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((staticEval & 0xFFFFL) << 32)
+                | ((depth & 0xFFL) << 48)
+                | ((long) type << 56)
+                | ((long) generation << 58);
+
+        table[replace] = key ^ data;
+        table[replace + 1] = data;
+
+        // We overwrote a different position
+        return replaceValue != Integer.MIN_VALUE;
+    }
+
+    public static short move(long data) {
+        return (short) data;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static short staticEval(long data) {
+        return (short) (data >>> 32);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    public static byte type(long data) {
+        return (byte) ((data >>> 56) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 58);
+    }
+
+    /**
+     * Starts a new search, entries of older searches are preferred for replacement
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
     }
 
     /**
@@ -100,46 +202,42 @@ public class TranspositionTable {
     }
 
     /**
-     * Resizes the transposition table
+     * Resizes the transposition table, which also clears it
      *
      * @param size The new size in MB
      */
     public void resize(int size) {
-        size *= (int) (1_048_576.0 / ENTRY_SIZE);
-        this.size = Integer.highestOneBit(size);
-        this.mask = this.size - 1;
-        this.data = new Entry[this.size];
+        long entries = (long) size * 1_048_576L / ENTRY_SIZE;
+        int buckets = Integer.highestOneBit((int) Math.max(1, Math.min(entries / BUCKET_ENTRIES, 1 << 27)));
+        this.bucketMask = buckets - 1;
+        this.table = new long[buckets * BUCKET_LONGS];
+        this.generation = 0;
+    }
+
+    /**
+     * Removes all entries without reallocating the table
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
     }
 
     /**
-     * Estimates how full our hash is
+     * Estimates how full our hash is, based on the entries of the current search in the first 1000 slots
      *
-     * @return The estimated hash full
+     * @return The estimated hash full in permill
      */
     public int hashfull() {
+        final int samples = Math.min(1000, table.length / 2);
         int filled = 0;
-        int minimum_hash = 1048576 / ENTRY_SIZE;
 
-        for (int i = 0; i < minimum_hash; i++) {
-            if (data[i] != null) {
+        for (int i = 0; i < samples; i++) {
+            final long data = table[2 * i + 1];
+            if (data != NO_ENTRY && generation(data) == generation) {
                 filled++;
             }
         }
 
-        return filled * 1000 / minimum_hash;
-    }
-
-
-    /**
-     * Record for a transportation table Entry
-     *
-     * @param key        The key of the current position
-     * @param type       The type. Either LOWER_BOUND, UPPER_BOUND or EXACT
-     * @param staticEval The static Eval of the position
-     * @param score      The current correct adjusted score
-     * @param move       The best move
-     * @param depth      The current depth
-     */
-    public record Entry(int key, byte type, short staticEval, int score, short move, short depth) {
+        return filled * 1000 / samples;
     }
-}
\ No newline at end of file
+}
@@ -20,56 +20,486 @@
 package src.Engine;
 
 import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+import src.Engine.NNUE.Network;
+import src.Engine.Solver.Solution;
+import src.Engine.Solver.Solver;
+import src.Engine.Tablebase.Tablebase;
+import src.Engine.Tablebase.TablebaseGenerator;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class UTI {
 
-    private final static Search search = new Search();
-    private static final Board board = new Board(10, 5);
+    private final static TranspositionTable transpositionTable = new TranspositionTable(16);
+    private final static EvalCache evalCache = new EvalCache(4);
+    private final static ThreadPool threadPool = new ThreadPool(1, transpositionTable, evalCache);
+    private static Board board = new Board(10, 5);
+    // The radius of the candidate moves, -1 keeps the default of the board size
+    private static int radius = -1;
+    // If all rotations and mirror images of a position share one transposition table entry
+    private static boolean symmetricHash = false;
+    // The time in milliseconds that gets lost per move outside the search
+    private static int moveOverhead = 10;
+    // The solver of the solve command, which is created by the first solve, and the size of its table in MB
+    private static volatile Solver solver = null;
+    private static int solverHash = 64;
+    // The loaded evaluation network and if it is used instead of the classical evaluation
+    private static Network network = null;
+    private static boolean useNNUE = true;
+    // The base position and the encoded moves of the last position command, which are on the board
+    private static String positionBase = null;
+    private static final ArrayList<Integer> positionMoves = new ArrayList<>();
+    // The commands that use the board, which the search thread handles one after another
+    private static final BlockingQueue<String> commandQueue = new LinkedBlockingQueue<>();
+    // The amount of commands that are queued or running, and how many of them are no go or solve commands
+    private static int pendingCommands = 0;
+    private static int pendingBoardCommands = 0;
+    // The amount of go commands that were queued, stopped and started. A command is stopped
+    // if it was queued before the last stop, even if it only starts after the stop
+    private static long queuedSearches = 0;
+    private static volatile long stoppedSearches = 0;
+    private static long startedSearches = 0;
+    private static final Object searchLock = new Object();
 
     public static void main(String[] args) {
 
-        search.initLMR(board);
-        search.initHistory(board);
+        threadPool.getMainSearch().initLMR(board);
+        threadPool.initHistory(board);
         if (args.length != 0 && Objects.equals(args[0], "bench")) {
-            search.bench();
+            threadPool.getMainSearch().bench();
             return;
         }
 
+        // One long-lived thread runs all searches, so the input is still read while searching
+        Thread searchThread = new Thread(UTI::searchLoop, "Search");
+        searchThread.setDaemon(true);
+        searchThread.start();
+
         Scanner scanner = new Scanner(System.in);
 
         while (scanner.hasNext()) {
-            String token = scanner.nextLine();
-            if (token.equals("stop") || token.equals("quit")) {
-                System.exit(0);
+            String token = scanner.nextLine().trim();
+            if (token.equals("stop")) {
+                // The search prints its best move, the engine keeps running
+                stopSearches();
+            } else if (token.equals("quit")) {
                 break;
-            } else if (token.equals("bench")) {
-                search.bench();
-            } else if (token.contains("go")) {
-                new Thread(() -> handleGo(token)).start();
-            } else if (token.contains("position")) {
-                board.setBoardNotation(token.substring(token.indexOf("pos") + 8).trim());
-            } else if (token.equals("d")) {
-                System.out.println(board);
-            } else if (token.equals("speedtest")) {
-                search.speedtest();
-            } else if (token.equals("perft")) {
-                // TODO make custom depth possible
-                board.perf(5);
-                System.out.println("Nodes: " + board.nodes);
+            } else if (token.equals("isready")) {
+                // Searches don't delay the answer, but the commands that wait for a search do
+                if (hasPendingBoardCommands()) {
+                    queueCommand(token);
+                } else {
+                    System.out.println("readyok");
+                }
+            } else {
+                // Everything else changes or uses the board, so the search thread handles it after the
+                // running search, while this thread keeps reading stop and quit
+                queueCommand(token);
+            }
+        }
+
+        // The queued commands are dropped, only the running one is stopped and finished
+        final ArrayList<String> dropped = new ArrayList<>();
+        commandQueue.drainTo(dropped);
+        synchronized (searchLock) {
+            pendingCommands -= dropped.size();
+            for (String token : dropped) {
+                if (!isSearch(token)) {
+                    pendingBoardCommands--;
+                }
+            }
+        }
+        stopSearches();
+        waitForCommands();
+    }
+
+    private static void handleCommand(String token) {
+        if (token.equals("ucinewgame")) {
+            // Forget everything about the previous game without reallocating the engine
+            transpositionTable.clear();
+            threadPool.initHistory(board);
+        } else if (token.equals("bench")) {
+            threadPool.getMainSearch().bench();
+        } else if (token.startsWith("setoption")) {
+            handleSetOption(token);
+        } else if (token.startsWith("scaling")) {
+            String depth = token.substring("scaling".length()).trim();
+            threadPool.scaling(depth.isEmpty() ? 9 : Integer.parseInt(depth));
+        } else if (token.startsWith("tablebase")) {
+            handleTablebase(token);
+        } else if (token.startsWith("nnue")) {
+            handleNetwork(token);
+        } else if (token.startsWith("position")) {
+            handlePosition(token.substring("position".length()).trim());
+        } else if (token.equals("d")) {
+            System.out.println(board);
+        } else if (token.equals("speedtest")) {
+            threadPool.getMainSearch().speedtest();
+        } else if (token.equals("perft")) {
+            // TODO make custom depth possible
+            board.perf(5);
+            System.out.println("Nodes: " + board.nodes);
+        }
+    }
+
+    /**
+     * Handles a command in the format tablebase generate [file], tablebase load [file] or tablebase off.
+     * Generating writes the tablebase of the current board size and win length and loads it afterward
+     *
+     * @param token The whole command
+     */
+    private static void handleTablebase(String token) {
+        String[] parts = token.trim().split("\\s+", 3);
+        if (parts.length == 2 && parts[1].equals("off")) {
+            threadPool.setTablebase(null);
+            return;
+        }
+        if (parts.length != 3 || !(parts[1].equals("generate") || parts[1].equals("load"))) {
+            throw new RuntimeException("Invalid input for the tablebase command: " + token);
+        }
+
+        final Path path = Path.of(parts[2]);
+        try {
+            if (parts[1].equals("generate")) {
+                final long startTime = System.nanoTime();
+                final int count = new TablebaseGenerator(board.getSize(), board.getWinningSize(),
+                        Runtime.getRuntime().availableProcessors()).generate(path);
+                System.out.println("info string generated " + count + " positions in "
+                        + (System.nanoTime() - startTime) / 1_000_000L + " ms");
+            }
+
+            Tablebase tablebase = Tablebase.open(path);
+            threadPool.setTablebase(tablebase);
+            System.out.println("info string loaded a tablebase for " + tablebase.getSize() + "x" + tablebase.getSize()
+                    + " with win length " + tablebase.getWinningSize());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("The tablebase failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles a command in the format nnue load [file] or nnue off
+     *
+     * @param token The whole command
+     */
+    private static void handleNetwork(String token) {
+        String[] parts = token.trim().split("\\s+", 3);
+        if (parts.length == 2 && parts[1].equals("off")) {
+            network = null;
+            threadPool.setNetwork(null);
+            return;
+        }
+        if (parts.length != 3 || !parts[1].equals("load")) {
+            throw new RuntimeException("Invalid input for the nnue command: " + token);
+        }
+
+        try {
+            network = Network.load(Path.of(parts[2]));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("The network failed: " + e.getMessage());
+        }
+
+        threadPool.setNetwork(useNNUE ? network : null);
+        System.out.println("info string loaded a network for " + network.getSize() + "x" + network.getSize()
+                + " with width " + network.getWidth() + " and hidden width " + network.getHiddenWidth()
+                + " using the " + network.getKernels().getName() + " kernels");
+    }
+
+    /**
+     * Handles a position in the format [notation] or [notation] moves [x,y] [x,y] ...
+     * If the notation is the same as before and the moves continue the previous moves,
+     * only the new moves are made on the board
+     *
+     * @param position The position without the command name
+     */
+    private static void handlePosition(String position) {
+        String[] parts = position.split("\\s+moves\\s*", 2);
+        String base = parts[0].trim();
+        String[] tokens = parts.length > 1 && !parts[1].isBlank() ? parts[1].trim().split("\\s+") : new String[0];
+
+        int[] moves = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String[] coordinates = tokens[i].split(",");
+            if (coordinates.length != 2) {
+                throw new RuntimeException("Invalid move in the position command: " + tokens[i]);
+            }
+            final int x = Integer.parseInt(coordinates[0]);
+            final int y = Integer.parseInt(coordinates[1]);
+            if (x < 0 || y < 0 || x >= board.getSize() || y >= board.getSize()) {
+                throw new RuntimeException("Move outside of the board in the position command: " + tokens[i]);
+            }
+            moves[i] = Move.encode(x, y);
+        }
+
+        // Check if the board already contains the beginning of this game
+        boolean continues = base.equals(positionBase) && positionMoves.size() <= moves.length;
+        for (int i = 0; continues && i < positionMoves.size(); i++) {
+            continues = positionMoves.get(i) == moves[i];
+        }
+
+        if (!continues) {
+            // A bad notation throws with the board half set up, so the old game must be forgotten first
+            positionBase = null;
+            positionMoves.clear();
+            board.setBoardNotation(base);
+            positionBase = base;
+        }
+
+        for (int i = positionMoves.size(); i < moves.length; i++) {
+            if (!board.isEmpty(Move.getX(moves[i]), Move.getY(moves[i]))) {
+                // The board doesn't match the command anymore, so the next position starts from scratch
+                positionBase = null;
+                throw new RuntimeException("Illegal move in the position command: " + tokens[i]);
+            }
+
+            board.makeMove(moves[i]);
+            positionMoves.add(moves[i]);
+        }
+    }
+
+    /**
+     * @param token The whole command
+     * @return If the command is a go or solve command, which can be stopped
+     */
+    private static boolean isSearch(String token) {
+        return token.startsWith("go") || token.startsWith("solve");
+    }
+
+    /**
+     * Queues a command for the search thread
+     *
+     * @param token The whole command
+     */
+    private static void queueCommand(String token) {
+        synchronized (searchLock) {
+            pendingCommands++;
+            if (!isSearch(token)) {
+                pendingBoardCommands++;
+            }
+        }
+        if (isSearch(token)) {
+            queuedSearches++;
+        }
+        commandQueue.add(token);
+    }
+
+    /**
+     * @return If a command other than go or solve is queued or running
+     */
+    private static boolean hasPendingBoardCommands() {
+        synchronized (searchLock) {
+            return pendingBoardCommands > 0;
+        }
+    }
+
+    /**
+     * Stops the running search and every queued search
+     */
+    private static void stopSearches() {
+        stoppedSearches = queuedSearches;
+        threadPool.stop();
+
+        final Solver solver = UTI.solver;
+        if (solver != null) {
+            solver.stop();
+        }
+    }
+
+    /**
+     * Blocks until all queued commands are handled
+     */
+    private static void waitForCommands() {
+        synchronized (searchLock) {
+            while (pendingCommands > 0) {
+                try {
+                    searchLock.wait();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
     }
 
+    private static void searchLoop() {
+        while (true) {
+            String token;
+            try {
+                token = commandQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (!isSearch(token)) {
+                try {
+                    if (token.equals("isready")) {
+                        System.out.println("readyok");
+                    } else {
+                        handleCommand(token);
+                    }
+                } catch (RuntimeException e) {
+                    // A bad command must not kill the engine
+                    System.out.println("info string " + e.getMessage());
+                } finally {
+                    synchronized (searchLock) {
+                        pendingCommands--;
+                        pendingBoardCommands--;
+                        searchLock.notifyAll();
+                    }
+                }
+                continue;
+            }
+
+            // The stop flags are reset when the search starts. A stop that came before stops it right away,
+            // a stop that comes after this point sets the flags again
+            if (token.startsWith("solve") && solver == null) {
+                solver = new Solver(solverHash);
+            }
+            final Solver solver = UTI.solver;
+
+            threadPool.prepare();
+            if (solver != null) {
+                solver.prepare();
+            }
+            if (++startedSearches <= stoppedSearches) {
+                threadPool.stop();
+                if (solver != null) {
+                    solver.stop();
+                }
+            }
+
+            try {
+                if (token.startsWith("solve")) {
+                    handleSolve(token);
+                } else {
+                    handleGo(token);
+                }
+            } catch (RuntimeException e) {
+                // A bad command must not kill the search thread
+                System.out.println("info string " + e.getMessage());
+            } finally {
+                synchronized (searchLock) {
+                    pendingCommands--;
+                    searchLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a command in the format setoption name [name] value [value]
+     *
+     * @param token The whole command
+     */
+    private static void handleSetOption(String token) {
+        String[] parts = token.trim().split("\\s+");
+        if (parts.length != 5 || !parts[1].equals("name") || !parts[3].equals("value")) {
+            throw new RuntimeException("Invalid input for the setoption command: " + token);
+        }
+
+        int value;
+        try {
+            value = Integer.parseInt(parts[4]);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number entered as value for " + parts[2]);
+        }
+
+        if (parts[2].equalsIgnoreCase("Hash")) {
+            transpositionTable.resize(value);
+        } else if (parts[2].equalsIgnoreCase("EvalCache")) {
+            evalCache.resize(value);
+        } else if (parts[2].equalsIgnoreCase("Threads")) {
+            threadPool.setThreads(value);
+            threadPool.initHistory(board);
+        } else if (parts[2].equalsIgnoreCase("BoardSize")) {
+            setBoard(value, Math.min(board.getWinningSize(), value));
+        } else if (parts[2].equalsIgnoreCase("WinLength")) {
+            setBoard(board.getSize(), value);
+        } else if (parts[2].equalsIgnoreCase("ThreatSearch")) {
+            threadPool.setThreatMode(value);
+        } else if (parts[2].equalsIgnoreCase("SolverHash")) {
+            // The table is allocated by the next solve command
+            solverHash = Math.max(1, value);
+            solver = null;
+        } else if (parts[2].equalsIgnoreCase("MoveOverhead")) {
+            moveOverhead = Math.max(0, value);
+        } else if (parts[2].equalsIgnoreCase("SymmetricHash")) {
+            symmetricHash = value != 0;
+            board.setSymmetryTracking(symmetricHash);
+            transpositionTable.clear();
+        } else if (parts[2].equalsIgnoreCase("UseNNUE")) {
+            useNNUE = value != 0;
+            threadPool.setNetwork(useNNUE ? network : null);
+        } else if (parts[2].equalsIgnoreCase("Radius")) {
+            radius = value;
+            board.setRadius(value);
+        } else {
+            System.out.println("info string unknown option " + parts[2]);
+        }
+    }
+
+    /**
+     * Replaces the board with an empty board of a different size or win length
+     *
+     * @param size      The size of the board
+     * @param winLength  The amount of stones in a row that are needed for a win
+     */
+    private static void setBoard(int size, int winLength) {
+        if (size < 1 || size > Board.MAX_SIZE || winLength < 1 || winLength > size) {
+            throw new RuntimeException("Invalid board size " + size + " with win length " + winLength);
+        }
+
+        board = new Board(size, size - winLength);
+        positionBase = null;
+        if (radius >= 0) {
+            board.setRadius(radius);
+        }
+        board.setSymmetryTracking(symmetricHash);
+
+        transpositionTable.clear();
+        threadPool.initHistory(board);
+    }
+
+    /**
+     * Handles a command in the format solve or solve nodes [n].
+     * Prints the amount of nodes and the time, followed by the result for the side to move and the proof move
+     *
+     * @param token The whole solve command
+     */
+    private static void handleSolve(String token) {
+        long nodeLimit = Long.MAX_VALUE;
+        String[] parts = token.trim().split("\\s+");
+        if (parts.length == 3 && parts[1].equals("nodes")) {
+            try {
+                nodeLimit = Long.parseLong(parts[2]);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid number entered as nodes");
+            }
+        } else if (parts.length != 1) {
+            throw new RuntimeException("Invalid input for the solve command: " + token);
+        }
+
+        final long startTime = System.nanoTime();
+        Solution solution = solver.solve(board, nodeLimit);
+        final long time = (System.nanoTime() - startTime) / 1_000_000L;
+
+        System.out.println("info nodes " + solution.getNodes() + " time " + time);
+        System.out.println("solution " + solution);
+    }
+
     private static void handleGo(String token) {
         if (token.contains("depth")) {
             String depthValueStr = token.substring(token.indexOf("depth") + 5).trim();
 
             try {
                 int depth = Integer.parseInt(depthValueStr);
-                System.out.println("bestmove " + search.getBestMove(board, depth));
+                System.out.println("bestmove " + threadPool.getBestMove(board, depth));
             } catch (NumberFormatException e) {
                 throw new RuntimeException("Invalid number entered as depth");
             }
@@ -110,17 +540,11 @@ public class UTI {
                 throw new RuntimeException("Invalid number entered as oInc");
             }
 
-            int timeForMove;
-
-            String notation = board.getBoardNotation();
-
-            if (notation.charAt(notation.length() - 1) == 'x') {
-                timeForMove = xTime / 20 + (xInc / 2);
-            } else {
-                timeForMove = oTime / 20 + (oInc / 2);
-            }
+            TimeManager timeManager = board.getSideToMove() == Types.X_SIDE
+                    ? TimeManager.forClock(xTime, xInc, moveOverhead)
+                    : TimeManager.forClock(oTime, oInc, moveOverhead);
 
-            System.out.println("bestmove " + search.getBestMove(board, timeForMove, false));
+            System.out.println("bestmove " + threadPool.getBestMove(board, timeManager, false));
 
         } else {
             throw new RuntimeException("Invalid input for the go command: " + token);
@@ -19,7 +19,7 @@
 package src.GameManager;
 
 import src.GameManager.Util.Checkpoint;
-import src.GameManager.Util.Engine;
+import src.GameManager.Util.EnginePool;
 import src.GameManager.Util.GamePlayer;
 import src.GameManager.Util.SPRT.Elo;
 import src.GameManager.Util.SPRT.LLR;
@@ -27,25 +27,57 @@ import src.GameManager.Util.TestStats;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class GameManager {
     private final Checkpoint checkpoint = new Checkpoint();
     private final int generateHalfMoves = 6;
-    private final int AMOUNT_THREADS = 4;
     private final TestStats testStats = new TestStats();
     private final Elo elo = new Elo();
     private final Path ENGINE_DIR = Paths.get("GameManager");
     private final String DEV = ENGINE_DIR.resolve("engines/dev.jar").toString();
     private final String BASE = ENGINE_DIR.resolve("engines/base.jar").toString();
+    // Finished game pairs as [losses, draws, wins] of the dev engine
+    private final BlockingQueue<int[]> results = new LinkedBlockingQueue<>();
+    private final int concurrency;
+    private final EnginePool enginePool;
+    private final GamePlayer[] gamePlayers;
+    private volatile boolean running = true;
 
+    /**
+     * @param concurrency The amount of game pairs that are played at the same time
+     */
+    public GameManager(int concurrency) {
+        this.concurrency = concurrency;
+        this.enginePool = new EnginePool(concurrency, DEV, BASE);
+        this.gamePlayers = new GamePlayer[concurrency];
+    }
+
+    /**
+     * The concurrency can be passed as the first argument.
+     * By default, one core is left free for the manager itself,
+     * the two engines of a pair never think at the same time
+     */
     public static void main(String[] args) {
-        new GameManager().execute();
+        int concurrency = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        new GameManager(concurrency).execute();
     }
 
     private void execute() {
         LLR llr = new LLR();
 
+        // Every slot reuses its engines for all game pairs
+        for (int i = 0; i < concurrency; i++) {
+            gamePlayers[i] = new GamePlayer(enginePool, i);
+        }
+
+        // Make sure that no engine process outlives the manager
+        Runtime.getRuntime().addShutdownHook(new Thread(enginePool::close));
+
         if (DEV.equals(BASE)) {
             System.err.println("The two engines are the same!");
         }
@@ -55,45 +87,37 @@ public class GameManager {
             System.err.println("When generating a random position, it is not X-Turn");
         }
 
-        double currentLLR;
-        int iteration = 0;
-
         // Check if we start from a checkpoint
         checkpoint.loadCheckpoint(testStats);
         if (!testStats.isEmpty()) {
-            // Calculate the iteration based on the number of games
-            iteration = (testStats.getWins() + testStats.getDraws() + testStats.getLosses()) / (AMOUNT_THREADS * 2);
             System.out.println("Resuming from checkpoint.");
         }
 
+        System.out.println("Playing " + concurrency + " game pairs at the same time");
+
+        Thread[] workers = startWorkers();
+
+        double currentLLR;
+
         // TODO when test finishes, clear the checkpoint
-        // Play games until our LLR exceeds one of the two bounds
+        // Play games until our LLR exceeds one of the two bounds.
+        // The LLR gets updated after every game pair, so the test stops as soon as possible
         do {
-            // Generate a list of all Game Player threads
-            ArrayList<Thread> threads = getThreads();
-
-            // Increment the iteration
-            iteration++;
-
-            // Loop over all the threads and wait for them to finish
-            for (Thread thread : threads) {
-                try {
-                    thread.join();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+            int[] wdl;
+            try {
+                wdl = results.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
             }
 
-            // Get all the stats after all games have finished
+            testStats.incrementLosses(wdl[0]);
+            testStats.incrementDraws(wdl[1]);
+            testStats.incrementWins(wdl[2]);
+            checkpoint.save(testStats);
+
             int wins = testStats.getWins();
             int draws = testStats.getDraws();
             int losses = testStats.getLosses();
-            int total = wins + draws + losses;
-
-            // If our total amount of games does not equal to AMOUNT_THREADS * 2, something went wrong
-            if (total / iteration != AMOUNT_THREADS * 2) {
-                System.err.println("Expected " + AMOUNT_THREADS * 2 + " games, got " + total / iteration + " games!");
-            }
 
             // Calculate the new LLR based on the new stats
             currentLLR = llr.getLLR(wins, draws, losses);
@@ -102,31 +126,50 @@ public class GameManager {
             logStats(currentLLR, wins, losses, draws);
 
         } while (!(currentLLR > 2.95) && !(currentLLR <= -2.95));
+
+        // Closing the pool kills the engines, so running game pairs end immediately
+        running = false;
+        enginePool.close();
+
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     /**
-     * Create and starts all Threads for the {@link GamePlayer}
+     * Creates and starts one worker per slot. A worker plays game pairs with the
+     * {@link GamePlayer} of its slot until the test is over, so no slot has to wait for the others
      *
-     * @return Returns a {@link ArrayList} of all the startet Threads
+     * @return The started workers
      */
-    private ArrayList<Thread> getThreads() {
-        ArrayList<Thread> threads = new ArrayList<>();
-
-        // Create for every thread a Game Player Object
-        for (int i = 0; i < AMOUNT_THREADS; i++) {
-
-            // Spawn the two engines
-            Engine devEngine = new Engine(DEV, "dev");
-            Engine baseEngine = new Engine(BASE, "base");
-
-            // Create the thread and start them
-            Thread thread = new Thread(() -> new GamePlayer(devEngine, baseEngine, checkpoint, testStats).playGame(generateHalfMoves));
-            thread.start();
-
-            // Adds the thread to the list
-            threads.add(thread);
+    private Thread[] startWorkers() {
+        Thread[] workers = new Thread[concurrency];
+
+        for (int i = 0; i < concurrency; i++) {
+            final GamePlayer gamePlayer = gamePlayers[i];
+            final int slot = i;
+
+            workers[i] = new Thread(() -> {
+                while (running) {
+                    try {
+                        results.add(gamePlayer.playGame(generateHalfMoves));
+                    } catch (RuntimeException e) {
+                        // The pool also gets closed by the shutdown hook
+                        if (!running || enginePool.isClosed()) {
+                            return;
+                        }
+                        // The game pair gets skipped, the next one starts with restarted engines
+                        System.err.println("Skipping a game pair on slot " + slot + ": " + e.getMessage());
+                    }
+                }
+            }, "GamePlayer-" + i);
+            workers[i].start();
         }
-        return threads;
+        return workers;
     }
 
     /**
@@ -4,11 +4,12 @@ import java.io.*;
 import java.util.ArrayList;
 
 public class Engine {
-    private final Process process;
-    private final BufferedWriter commandWriter;
-    private final BufferedReader outputReader;
-    private final BufferedReader errorReader;
+    private final String jarFilePath;
     private final String name;
+    private Process process;
+    private BufferedWriter commandWriter;
+    private BufferedReader outputReader;
+    private BufferedReader errorReader;
 
     /**
      * Opens a Process with the corresponding engine
@@ -17,9 +18,15 @@ public class Engine {
      * @param name        The name of the engine
      */
     public Engine(String jarFilePath, String name) {
-
+        this.jarFilePath = jarFilePath;
         this.name = name;
+        start();
+    }
 
+    /**
+     * Spawns the engine process and opens its streams
+     */
+    private void start() {
         ProcessBuilder processBuilder = new ProcessBuilder("java", "-jar", jarFilePath);
 
         // Spawn the new process
@@ -35,16 +42,41 @@ public class Engine {
         errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
 
         // Start a thread to read and print the error stream
-        new Thread(() -> {
+        final BufferedReader reader = errorReader;
+        Thread errorThread = new Thread(() -> {
             String line;
             try {
-                while ((line = errorReader.readLine()) != null) {
+                while ((line = reader.readLine()) != null) {
                     System.err.println(line);
                 }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            } catch (IOException ignored) {
+                // The stream was closed because the engine got closed or restarted
             }
-        }).start();
+        });
+        errorThread.setDaemon(true);
+        errorThread.start();
+    }
+
+    /**
+     * Closes the process and spawns a new one, e.g. after the engine crashed
+     */
+    public void restart() {
+        close();
+        start();
+    }
+
+    /**
+     * @return If the engine process is still running
+     */
+    public boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    /**
+     * Tells the engine that the next position belongs to a new game
+     */
+    public void newGame() {
+        sendCommand("ucinewgame");
     }
 
 
@@ -109,13 +141,19 @@ public class Engine {
             if (process.isAlive()) {
                 process.destroy();
             }
-            try {
-                commandWriter.close();
-                outputReader.close();
-                errorReader.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            closeQuietly(commandWriter);
+            closeQuietly(outputReader);
+            closeQuietly(errorReader);
+        }
+    }
+
+    /**
+     * Closes a stream of the process. If the engine crashed, the pipe is already broken, which we ignore
+     */
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
         }
     }
 
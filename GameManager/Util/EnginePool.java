@@ -0,0 +1,91 @@
+package src.GameManager.Util;
+
+/**
+ * Keeps one dev and one base engine process alive per concurrency slot, so that
+ * the processes are reused for every game pair instead of being spawned for each one
+ */
+public class EnginePool {
+    private final Engine[] devEngines;
+    private final Engine[] baseEngines;
+    private volatile boolean closed;
+
+    /**
+     * Spawns the engines of all slots
+     *
+     * @param slots    The amount of games that are played at the same time
+     * @param devPath  The path to the jar file of the dev engine
+     * @param basePath The path to the jar file of the base engine
+     */
+    public EnginePool(int slots, String devPath, String basePath) {
+        devEngines = new Engine[slots];
+        baseEngines = new Engine[slots];
+
+        for (int i = 0; i < slots; i++) {
+            devEngines[i] = new Engine(devPath, "dev");
+            baseEngines[i] = new Engine(basePath, "base");
+        }
+    }
+
+    /**
+     * Gets the dev engine of a slot, a crashed engine gets restarted first
+     *
+     * @param slot The slot
+     * @return The running dev engine
+     */
+    public Engine getDevEngine(int slot) {
+        return ensureAlive(devEngines[slot]);
+    }
+
+    /**
+     * Gets the base engine of a slot, a crashed engine gets restarted first
+     *
+     * @param slot The slot
+     * @return The running base engine
+     */
+    public Engine getBaseEngine(int slot) {
+        return ensureAlive(baseEngines[slot]);
+    }
+
+    /**
+     * Restarts both engines of a slot, e.g. after a game pair failed
+     *
+     * @param slot The slot
+     */
+    public void restart(int slot) {
+        if (closed) {
+            return;
+        }
+        devEngines[slot].restart();
+        baseEngines[slot].restart();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getSlots() {
+        return devEngines.length;
+    }
+
+    /**
+     * Closes all engine processes
+     */
+    public void close() {
+        closed = true;
+        for (int i = 0; i < devEngines.length; i++) {
+            devEngines[i].close();
+            baseEngines[i].close();
+        }
+    }
+
+    private Engine ensureAlive(Engine engine) {
+        if (closed) {
+            throw new IllegalStateException("The engine pool is already closed");
+        }
+        if (!engine.isAlive()) {
+            System.err.println("The engine '" + engine.getName() + "' is not running anymore, restarting it");
+            engine.restart();
+        }
+        return engine;
+    }
+}
@@ -11,32 +11,59 @@ import static src.Engine.Types.O_SIDE;
 import static src.Engine.Types.X_SIDE;
 
 public class GamePlayer {
-    private final Engine devEngine;
-    private final Engine baseEngine;
+    // How often a failed game pair is retried with restarted engines
+    private static final int MAX_RESTARTS = 3;
+
+    private final EnginePool enginePool;
+    private final int slot;
     private final Random random = new Random();
     private final Board board = new Board(10, 5);
-    private final Checkpoint checkpoint;
-    private final TestStats testStats;
+    // The moves of the current game, which are sent to the engines after the start position
+    private final StringBuilder moves = new StringBuilder();
+    private String startNotation;
+    private Engine devEngine;
+    private Engine baseEngine;
 
     /**
      * Default constructor
      *
-     * @param devEngine  The dev {@link Engine}
-     * @param baseEngine The base {@link Engine}
+     * @param enginePool The {@link EnginePool} that owns the engines
+     * @param slot       The slot of the engines in the pool, which is used by this player only
      */
-    public GamePlayer(Engine devEngine, Engine baseEngine, Checkpoint checkpoint, TestStats testStats) {
-        this.devEngine = devEngine;
-        this.baseEngine = baseEngine;
-        this.checkpoint = checkpoint;
-        this.testStats = testStats;
+    public GamePlayer(EnginePool enginePool, int slot) {
+        this.enginePool = enginePool;
+        this.slot = slot;
     }
 
     /**
-     * Plays a game pair between the dev and base engine
+     * Plays a game pair between the dev and base engine.
+     * If an engine crashes, both engines of the slot get restarted and the game pair is played again
+     *
+     * @param amountHalfMoves The amount of random half moves of the opening
+     * @return The losses, draws and wins of the dev engine
      */
-    public void playGame(int amountHalfMoves) {
+    public int[] playGame(int amountHalfMoves) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return playGamePair(amountHalfMoves);
+            } catch (RuntimeException e) {
+                // A closed pool means the test is over, so there is nothing to retry
+                if (attempt >= MAX_RESTARTS || enginePool.isClosed()) {
+                    throw e;
+                }
+                System.err.println("Game pair on slot " + slot + " failed, restarting the engines: " + e.getMessage());
+                enginePool.restart(slot);
+            }
+        }
+    }
+
+    private int[] playGamePair(int amountHalfMoves) {
         int[] wdl = new int[3];
 
+        // The engines stay alive between game pairs, the pool restarts them if they crashed
+        devEngine = enginePool.getDevEngine(slot);
+        baseEngine = enginePool.getBaseEngine(slot);
+
         boolean isValidBoard = false;
         String boardNotation = "";
 
@@ -71,11 +98,16 @@ public class GamePlayer {
         int oInc = 8;
         long startTime;
 
+        devEngine.newGame();
+        baseEngine.newGame();
+        startNotation = boardNotation;
+        moves.setLength(0);
+
         // Play the first game where the dev Engine starts first
         while (!board.isGameOver()) {
 
             // Get the best move from the dev Engine
-            devEngine.sendCommand("position " + board.getBoardNotation());
+            devEngine.sendCommand(getPositionCommand());
             devEngine.sendCommand("go xTime " + xTime + " oTime " + oTime + " xInc " + xInc + " oInc " + oInc);
             startTime = System.currentTimeMillis();
 
@@ -99,7 +131,7 @@ public class GamePlayer {
             }
 
             // Get the best move from the base Engine
-            baseEngine.sendCommand("position " + board.getBoardNotation());
+            baseEngine.sendCommand(getPositionCommand());
             baseEngine.sendCommand("go xTime " + xTime + " oTime " + oTime + " xInc " + xInc + " oInc " + oInc);
             startTime = System.currentTimeMillis();
 
@@ -130,11 +162,15 @@ public class GamePlayer {
         xTime = 8000;
         oTime = 8000;
 
+        devEngine.newGame();
+        baseEngine.newGame();
+        moves.setLength(0);
+
         // Play the second game where the base Engine starts first
         while (!board.isGameOver()) {
 
             // Get the best move from the base Engine
-            baseEngine.sendCommand("position " + board.getBoardNotation());
+            baseEngine.sendCommand(getPositionCommand());
             baseEngine.sendCommand("go xTime " + xTime + " oTime " + oTime + " xInc " + xInc + " oInc " + oInc);
             startTime = System.currentTimeMillis();
 
@@ -159,7 +195,7 @@ public class GamePlayer {
             }
 
             // Get the best move from the dev Engine
-            devEngine.sendCommand("position " + board.getBoardNotation());
+            devEngine.sendCommand(getPositionCommand());
             devEngine.sendCommand("go xTime " + xTime + " oTime " + oTime + " xInc " + xInc + " oInc " + oInc);
             startTime = System.currentTimeMillis();
 
@@ -183,25 +219,17 @@ public class GamePlayer {
             }
         }
 
-        // Update the wdl
-        updateScore(wdl);
-
-        // We need to close the engine processes or else we run out of memory
-        devEngine.close();
-        baseEngine.close();
+        return wdl;
     }
 
     /**
-     * Synchronized method that receives updated wdl from different threads
+     * Creates the position command from the start position and the moves of the game,
+     * so the engines only have to make the new moves on their board
      *
-     * @param wdl The wdl to add
+     * @return The position command
      */
-    public synchronized void updateScore(int[] wdl) {
-        testStats.incrementLosses(wdl[0]);
-        testStats.incrementDraws(wdl[1]);
-        testStats.incrementWins(wdl[2]);
-
-        checkpoint.save(testStats);
+    private String getPositionCommand() {
+        return moves.isEmpty() ? "position " + startNotation : "position " + startNotation + " moves" + moves;
     }
 
     /**
@@ -237,5 +265,6 @@ public class GamePlayer {
 
         // Make the move on the board
         board.makeMove(x, y);
+        moves.append(' ').append(x).append(',').append(y);
     }
 }
\ No newline at end of file
@@ -23,11 +23,30 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import src.Engine.Movegen.Board;
 import src.Engine.Movegen.Move;
+import src.Engine.Movegen.Patterns;
+import src.Engine.Movegen.Symmetry;
+import src.Engine.NNUE.Accumulator;
+import src.Engine.NNUE.Kernels;
+import src.Engine.NNUE.Network;
+import src.Engine.EvalCache;
+import src.Engine.Evaluation;
 import src.Engine.Search;
+import src.Engine.Solver.Solution;
+import src.Engine.Solver.Solver;
+import src.Engine.Tablebase.Tablebase;
+import src.Engine.Tablebase.TablebaseGenerator;
+import src.Engine.ThreadPool;
+import src.Engine.ThreatSearch;
 import src.Engine.TranspositionTable;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Random;
 
+import static src.Engine.Types.EVAL_NONE;
 import static src.Engine.Types.O_SIDE;
 import static src.Engine.Types.X_SIDE;
 
@@ -136,18 +155,660 @@ public class UnitTests {
         Assertions.assertTrue(board.hasDiagonalWin(X_SIDE));
     }
 
+    @Test
+    public void testIncrementalWin() {
+        Random random = new Random(1);
+        board = new Board(7, 3);
+
+        for (int game = 0; game < 200; game++) {
+            board.reset();
+            ArrayList<Move> played = new ArrayList<>();
+
+            // Play random moves until the game is over and compare with a full board scan
+            while (!board.isGameOver()) {
+                Move[] legalMoves = board.generateLegalMoves();
+                Move move = legalMoves[random.nextInt(legalMoves.length)];
+                board.makeMove(move);
+                played.add(move);
+
+                Assertions.assertEquals(board.hasRowColumnWin(X_SIDE) || board.hasDiagonalWin(X_SIDE), board.hasWin(X_SIDE));
+                Assertions.assertEquals(board.hasRowColumnWin(O_SIDE) || board.hasDiagonalWin(O_SIDE), board.hasWin(O_SIDE));
+            }
+
+            // Unmaking the last move has to restore the previous state
+            board.unmakeMove(played.getLast());
+            Assertions.assertFalse(board.hasWin(X_SIDE) || board.hasWin(O_SIDE));
+        }
+    }
+
     @Test
     public void testTranspositionTable() {
         TranspositionTable transpositionTable = new TranspositionTable(8);
-        transpositionTable.write(200, O_SIDE, (short) 9, 20000, new Move(5, 5).getMoveData(), (short) 9);
-        TranspositionTable.Entry probed = transpositionTable.probe(200);
-        Assertions.assertEquals(9, probed.staticEval());
-        Assertions.assertEquals(20000, probed.score());
-        Assertions.assertEquals(new Move(5, 5).getMoveData(), probed.move());
+        Assertions.assertFalse(transpositionTable.write(200, O_SIDE, (short) 9, 20000, new Move(5, 5).getMoveData(), (short) 9));
+        long probed = transpositionTable.probe(200);
+        Assertions.assertEquals(9, TranspositionTable.staticEval(probed));
+        Assertions.assertEquals(20000, TranspositionTable.score(probed));
+        Assertions.assertEquals(new Move(5, 5).getMoveData(), TranspositionTable.move(probed));
+        Assertions.assertEquals(9, TranspositionTable.depth(probed));
+        Assertions.assertEquals(O_SIDE, TranspositionTable.type(probed));
+
+        // Same bucket, but different upper bits
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, transpositionTable.probe(200 | (1L << 40)));
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, transpositionTable.probe(2));
+
+        // Negative scores and a missing move keep the old move of the same position
+        Assertions.assertFalse(transpositionTable.write(200, TranspositionTable.EXACT, (short) -30, -29000, (short) Move.NONE, (short) 3));
+        probed = transpositionTable.probe(200);
+        Assertions.assertEquals(-30, TranspositionTable.staticEval(probed));
+        Assertions.assertEquals(-29000, TranspositionTable.score(probed));
+        Assertions.assertEquals(new Move(5, 5).getMoveData(), TranspositionTable.move(probed));
+
+        // A bucket holds several positions
+        for (long key = 1; key <= 3; key++) {
+            transpositionTable.write(200 | (key << 40), TranspositionTable.EXACT, (short) 0, (int) key, (short) Move.NONE, (short) 1);
+        }
+        Assertions.assertNotEquals(TranspositionTable.NO_ENTRY, transpositionTable.probe(200));
+        Assertions.assertEquals(3, TranspositionTable.score(transpositionTable.probe(200 | (3L << 40))));
+
+        // The bucket is full, so a fifth position replaces one of them
+        Assertions.assertTrue(transpositionTable.write(200 | (4L << 40), TranspositionTable.EXACT, (short) 0, 4, (short) Move.NONE, (short) 1));
+    }
+
+    @Test
+    public void testStopBeforeBestMove() throws InterruptedException {
+        board = new Board(10, 5);
+        board.makeMove(4, 4);
+        TranspositionTable transpositionTable = new TranspositionTable(8);
+        ThreadPool threadPool = new ThreadPool(1, transpositionTable, new EvalCache(0));
+        threadPool.initHistory(board);
+        threadPool.prepare();
+
+        // A fixed depth search this deep is stopped long before the root has finished its first move
+        Move[] bestMove = new Move[1];
+        Thread thread = new Thread(() -> bestMove[0] = threadPool.getBestMove(board, 30));
+        thread.start();
+        Thread.sleep(100);
+        threadPool.stop();
+        thread.join();
+
+        // The root still plays its first move, but the stopped nodes below it must not store their fake draws
+        Assertions.assertTrue(board.isEmpty(bestMove[0].x(), bestMove[0].y()));
+        board.makeMove(bestMove[0].x(), bestMove[0].y());
+        Assertions.assertEquals(TranspositionTable.NO_ENTRY, transpositionTable.probe(board.getKey()));
+    }
 
+    @Test
+    public void testEvalCache() {
+        EvalCache evalCache = new EvalCache(1);
+        Assertions.assertEquals(EVAL_NONE, evalCache.probe(200));
+        evalCache.store(200, -1234);
+        Assertions.assertEquals(-1234, evalCache.probe(200));
+
+        // Same entry, but different upper bits
+        Assertions.assertEquals(EVAL_NONE, evalCache.probe(200 | (1L << 40)));
+        evalCache.store(200 | (1L << 40), 77);
+        Assertions.assertEquals(77, evalCache.probe(200 | (1L << 40)));
+        Assertions.assertEquals(EVAL_NONE, evalCache.probe(200));
+
+        evalCache.clear();
+        Assertions.assertEquals(EVAL_NONE, evalCache.probe(200 | (1L << 40)));
+
+        // The same stones on another board don't share an entry
+        board = new Board(10, 5);
+        Assertions.assertNotEquals(EvalCache.variantKey(board), EvalCache.variantKey(new Board(10, 6)));
+        Assertions.assertNotEquals(EvalCache.variantKey(board), EvalCache.variantKey(new Board(9, 4)));
+
+        // The cache doesn't change the search, it only saves evaluations of the network
+        board.setBoardNotation(Search.BENCH_POSITIONS[2]);
+        Network network = Network.random(10, 16, 4, 3);
+        Search cached = new Search(new TranspositionTable(8), new EvalCache(1));
+        Search uncached = new Search(new TranspositionTable(8), new EvalCache(0));
+        cached.setNetwork(network);
+        uncached.setNetwork(network);
+        Move cachedMove = cached.getBestMove(new Board(board), 6);
+        Move uncachedMove = uncached.getBestMove(new Board(board), 6);
+        Assertions.assertTrue(cachedMove.equals(uncachedMove));
+        Assertions.assertEquals(uncached.getNodes(), cached.getNodes());
+
+        // The root was evaluated by the network
+        Board evaluated = new Board(board);
+        evaluated.setAccumulator(new Accumulator(network));
+        long key = board.getKey() ^ EvalCache.variantKey(board);
+        Assertions.assertEquals(new Evaluation().evaluate(evaluated), cached.getEvalCache().probe(key));
+        Assertions.assertEquals(EVAL_NONE, uncached.getEvalCache().probe(key));
+    }
+
+    @Test
+    public void testZobristKey() {
         board = new Board(10, 6);
         board.setBoardNotation("2000000001000000001010000000000000002000002000000000200000000001000020000001000000000000002000000001x");
-        Assertions.assertEquals(-902007277, board.getKey());
-        Assertions.assertNull(transpositionTable.probe(2));
+        long key = board.getKey();
+
+        // The incremental key has to match the key of the same position set up from scratch
+        board.makeMove(4, 4);
+        Board other = new Board(10, 6);
+        other.setBoardNotation(board.getBoardNotation());
+        Assertions.assertEquals(other.getKey(), board.getKey());
+
+        board.unmakeMove(4, 4);
+        Assertions.assertEquals(key, board.getKey());
+
+        // The side to move is part of the key
+        board.makeNullMove();
+        Assertions.assertNotEquals(key, board.getKey());
+        board.unmakeNullMove();
+        Assertions.assertEquals(key, board.getKey());
+    }
+
+    @Test
+    public void testWindowCounts() {
+        Random random = new Random(2);
+        board = new Board(8, 4);
+        Board empty = new Board(8, 4);
+
+        for (int game = 0; game < 100; game++) {
+            board.reset();
+            ArrayList<Move> played = new ArrayList<>();
+
+            while (!board.isGameOver()) {
+                Move[] legalMoves = board.generateLegalMoves();
+                Move move = legalMoves[random.nextInt(legalMoves.length)];
+                board.makeMove(move);
+                played.add(move);
+
+                // The incremental counts have to match the counts of the same position set up from scratch
+                Board other = new Board(8, 4);
+                other.setBoardNotation(board.getBoardNotation());
+                for (byte side = X_SIDE; side <= O_SIDE; side++) {
+                    Assertions.assertArrayEquals(other.getLiveWindows(side), board.getLiveWindows(side));
+                    Assertions.assertEquals(other.getLiveWindowCount(side), board.getLiveWindowCount(side));
+                    Assertions.assertEquals(other.getCentrality(side), board.getCentrality(side));
+                }
+                for (int x = 0; x < 8; x++) {
+                    for (int y = 0; y < 8; y++) {
+                        Assertions.assertEquals(other.isLiveSquare(x, y), board.isLiveSquare(x, y));
+                    }
+                }
+
+                // Looking for shorter runs must not change the win length
+                boolean xWin = board.hasRowColumnWin(X_SIDE) || board.hasDiagonalWin(X_SIDE);
+                board.hasWinWithFurtherOffset(1, X_SIDE);
+                Assertions.assertEquals(xWin, board.hasRowColumnWin(X_SIDE) || board.hasDiagonalWin(X_SIDE));
+            }
+
+            // Unmaking every move has to restore the empty board
+            for (int i = played.size() - 1; i >= 0; i--) {
+                board.unmakeMove(played.get(i));
+            }
+            for (byte side = X_SIDE; side <= O_SIDE; side++) {
+                Assertions.assertArrayEquals(empty.getLiveWindows(side), board.getLiveWindows(side));
+                Assertions.assertEquals(0, board.getCentrality(side));
+            }
+            Assertions.assertFalse(board.isDeadDraw());
+        }
+    }
+
+    @Test
+    public void testDeadDraw() {
+        board = new Board(3, 0);
+        board.setBoardNotation("121122210x");
+
+        // Every line has stones of both sides, the last empty square is dead
+        Assertions.assertTrue(board.isDeadDraw());
+        Assertions.assertFalse(board.isGameOver());
+        Assertions.assertFalse(board.isLiveSquare(2, 2));
+        for (byte side = X_SIDE; side <= O_SIDE; side++) {
+            Assertions.assertEquals(0, board.getLiveWindowCount(side));
+        }
+
+        // Without a live square every empty square is still a move
+        int[] moves = new int[9];
+        Assertions.assertEquals(1, board.generateLiveMoves(moves));
+        Assertions.assertEquals(Move.encode(2, 2), moves[0]);
+        search.initLMR(board);
+        Assertions.assertTrue(new Move(2, 2).equals(search.getBestMove(board, 5)));
+    }
+
+    @Test
+    public void testCandidateMoves() {
+        Random random = new Random(3);
+        board = new Board(19, 14);
+        int[] moves = new int[19 * 19];
+
+        // An empty board has no stones to be near, so every square is a candidate
+        Assertions.assertEquals(2, board.getRadius());
+        Assertions.assertEquals(19 * 19, board.generateLegalMoves(moves));
+
+        board.makeMove(9, 9);
+        Assertions.assertEquals(24, board.generateLegalMoves(moves));
+        board.makeMove(0, 0);
+        Assertions.assertEquals(24 + 8, board.generateLegalMoves(moves));
+        board.unmakeMove(0, 0);
+        board.unmakeMove(9, 9);
+        Assertions.assertEquals(19 * 19, board.generateLegalMoves(moves));
+
+        for (int game = 0; game < 20; game++) {
+            board.reset();
+
+            for (int ply = 0; ply < 60 && !board.isGameOver(); ply++) {
+                int count = board.generateLegalMoves(moves);
+                board.makeMove(moves[random.nextInt(count)]);
+
+                // Compare with the empty squares near a stone, counted from scratch
+                int expected = 0;
+                for (int x = 0; x < 19; x++) {
+                    for (int y = 0; y < 19; y++) {
+                        if (board.isEmpty(x, y) && hasStoneNear(board, x, y, 2)) {
+                            expected++;
+                        }
+                    }
+                }
+                Assertions.assertEquals(expected, board.generateLegalMoves(moves));
+
+                // A position set up from a notation has the same candidates
+                Board other = new Board(19, 14);
+                other.setBoardNotation(board.getBoardNotation());
+                Assertions.assertEquals(expected, other.generateLegalMoves(new int[19 * 19]));
+            }
+        }
+    }
+
+    @Test
+    public void testSymmetry() {
+        Random random = new Random(7);
+        board = new Board(7, 3);
+        board.setSymmetryTracking(true);
+        Symmetry symmetry = board.getSymmetry();
+        int[] moves = new int[49];
+
+        for (int game = 0; game < 10; game++) {
+            board.reset();
+
+            ArrayList<Integer> played = new ArrayList<>();
+            for (int ply = 0; ply < 30 && !board.isGameOver(); ply++) {
+                played.add(moves[random.nextInt(board.generateLegalMoves(moves))]);
+                board.makeMove(played.getLast());
+                String notation = board.getBoardNotation();
+
+                for (int transform = 0; transform < Symmetry.TRANSFORMS; transform++) {
+                    // The key of a transform is the key of the transformed board
+                    char[] transformed = notation.toCharArray();
+                    for (int square = 0; square < 49; square++) {
+                        transformed[symmetry.transformSquare(transform, square)] = notation.charAt(square);
+                    }
+                    Board other = new Board(7, 3);
+                    other.setBoardNotation(new String(transformed));
+                    Assertions.assertEquals(board.getKey(transform), other.getKey());
+
+                    // All orientations share the canonical key
+                    other.setSymmetryTracking(true);
+                    Assertions.assertEquals(board.getCanonicalKey(), other.getCanonicalKey());
+
+                    final int move = Move.encode(random.nextInt(7), random.nextInt(7));
+                    Assertions.assertEquals(move, symmetry.untransformMove(transform, symmetry.transformMove(transform, move)));
+                }
+            }
+
+            // Unmaking every move restores the keys of the empty board
+            for (int i = played.size() - 1; i >= 0; i--) {
+                board.unmakeMove(played.get(i));
+            }
+            for (int transform = 0; transform < Symmetry.TRANSFORMS; transform++) {
+                Assertions.assertEquals(0, board.getKey(transform));
+            }
+        }
+    }
+
+    @Test
+    public void testSymmetricMoves() {
+        board = new Board(10, 5);
+        Symmetry symmetry = board.getSymmetry();
+
+        // The empty board has all 8 symmetries and 15 different first moves
+        Assertions.assertEquals(0xFF, board.getInvariantTransforms());
+        Assertions.assertEquals(15, countRepresentatives(board.getInvariantTransforms()));
+
+        // A stone on the diagonal leaves only the mirror image along the diagonal
+        board.makeMove(4, 4);
+        Assertions.assertEquals(2, Integer.bitCount(board.getInvariantTransforms()));
+        Assertions.assertEquals(9 + 90 / 2, countRepresentatives(board.getInvariantTransforms()));
+
+        // The answer on the other diagonal square keeps it, any other answer breaks it
+        board.makeMove(5, 5);
+        Assertions.assertEquals(2, Integer.bitCount(board.getInvariantTransforms()));
+        board.unmakeMove(5, 5);
+        board.makeMove(4, 5);
+        Assertions.assertEquals(1, board.getInvariantTransforms());
+        Assertions.assertTrue(symmetry.isRepresentative(board.getInvariantTransforms(), Move.encode(9, 9)));
+    }
+
+    private int countRepresentatives(int transforms) {
+        int count = 0;
+        for (int move : legalMoves()) {
+            if (board.getSymmetry().isRepresentative(transforms, move)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String withStones(int size, int[][] xStones, int[][] oStones, char sideToMove) {
+        char[] notation = new char[size * size + 1];
+        Arrays.fill(notation, '0');
+        for (int[] stone : xStones) {
+            notation[stone[0] * size + stone[1]] = '1';
+        }
+        for (int[] stone : oStones) {
+            notation[stone[0] * size + stone[1]] = '2';
+        }
+        notation[size * size] = sideToMove;
+        return new String(notation);
+    }
+
+    private int[] legalMoves() {
+        int[] moves = new int[board.getSize() * board.getSize()];
+        return Arrays.copyOf(moves, board.generateLegalMoves(moves));
+    }
+
+    @Test
+    public void testPatterns() {
+        board = new Board(15, 10);
+        int row = 0, column = 1;
+
+        // Three in a row with both ends open
+        board.setBoardNotation(withStones(15, new int[][]{{7, 5}, {7, 6}, {7, 7}}, new int[][]{{0, 14}, {14, 14}}, 'x'));
+        Assertions.assertEquals(Patterns.OPEN_FOUR, board.getPattern(X_SIDE, Move.encode(7, 8), row));
+        Assertions.assertEquals(Patterns.OPEN_FOUR, board.getPattern(X_SIDE, Move.encode(7, 4), row));
+        Assertions.assertEquals(Patterns.FOUR, board.getPattern(X_SIDE, Move.encode(7, 9), row));
+        Assertions.assertEquals(Patterns.NONE, board.getPattern(X_SIDE, Move.encode(7, 8), column));
+        Assertions.assertEquals(Patterns.NONE, board.getPattern(X_SIDE, Move.encode(7, 7), row));
+        Assertions.assertEquals(0b11100000L, board.getLine(X_SIDE, Move.encode(7, 0), row));
+        Assertions.assertEquals(7, board.getLineBit(Move.encode(7, 7), row));
+
+        // Blocked on one side by a stone and by the edge of the board
+        board.setBoardNotation(withStones(15, new int[][]{{7, 5}, {7, 6}, {7, 7}, {0, 0}, {0, 1}, {0, 2}}, new int[][]{{7, 4}, {14, 14}, {14, 13}}, 'x'));
+        Assertions.assertEquals(Patterns.FOUR, board.getPattern(X_SIDE, Move.encode(7, 8), row));
+        Assertions.assertEquals(Patterns.FOUR, board.getPattern(X_SIDE, Move.encode(0, 3), row));
+        Assertions.assertEquals(Patterns.NONE, board.getPattern(X_SIDE, Move.encode(7, 3), row));
+        Assertions.assertEquals(Patterns.THREE, board.getPattern(X_SIDE, Move.encode(7, 10), row));
+
+        // Two in a row, and three on the diagonal together with (7, 7)
+        board.setBoardNotation(withStones(15, new int[][]{{7, 6}, {7, 7}, {5, 5}, {6, 6}}, new int[][]{{0, 14}, {14, 14}, {14, 0}, {0, 0}}, 'x'));
+        Assertions.assertEquals(Patterns.OPEN_THREE, board.getPattern(X_SIDE, Move.encode(7, 8), row));
+        Assertions.assertEquals(Patterns.OPEN_FOUR, board.getPattern(X_SIDE, Move.encode(4, 4), 2));
+        Assertions.assertEquals(Patterns.TWO, board.getPattern(X_SIDE, Move.encode(8, 6), 3));
+
+        // In random games a five is exactly a move that wins, and copies see the same patterns
+        Random random = new Random(4);
+        for (int game = 0; game < 10; game++) {
+            board.reset();
+
+            while (!board.isGameOver()) {
+                Board other = new Board(15, 10);
+                other.setBoardNotation(board.getBoardNotation());
+                final int side = board.getSideToMove();
+
+                for (int move : legalMoves()) {
+                    boolean five = false;
+                    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+                        int pattern = board.getPattern(side, move, direction);
+                        Assertions.assertEquals(other.getPattern(side, move, direction), pattern);
+                        five |= pattern == Patterns.FIVE;
+                    }
+
+                    board.makeMove(move);
+                    Assertions.assertEquals(board.hasWin(side), five);
+                    board.unmakeMove(move);
+                }
+
+                int[] moves = legalMoves();
+                board.makeMove(moves[random.nextInt(moves.length)]);
+            }
+        }
+    }
+
+    @Test
+    public void testThreatSearch() {
+        board = new Board(15, 10);
+        ThreatSearch threatSearch = new ThreatSearch();
+
+        // A quiet position has no forced win
+        board.makeMove(7, 7);
+        board.makeMove(7, 8);
+        Assertions.assertEquals(Move.NONE, threatSearch.findWin(board, 20, 100000, true));
+
+        // X has a blocked three in row 7 and in column 8, playing (7, 8) makes two fours at once
+        board.reset();
+        int[][] stones = {{7, 4}, {7, 3}, {7, 5}, {3, 8}, {7, 6}, {0, 0}, {4, 8}, {0, 14}, {5, 8}, {14, 0}, {6, 8}, {14, 14}};
+        for (int[] stone : stones) {
+            board.makeMove(stone[0], stone[1]);
+        }
+        String notation = board.getBoardNotation();
+
+        Assertions.assertEquals(Move.encode(7, 8), threatSearch.findWin(board, 20, 100000, false));
+        Assertions.assertEquals(3, threatSearch.getLength());
+        Assertions.assertEquals(notation, board.getBoardNotation());
+
+        // O to move has no threats of its own
+        board.unmakeMove(14, 14);
+        Assertions.assertEquals(Move.NONE, threatSearch.findWin(board, 20, 100000, true));
+    }
+
+    @Test
+    public void testSolver() {
+        Solver solver = new Solver(16);
+
+        // Tic-tac-toe is a draw, every corner and the center hold it
+        board = new Board(3, 0);
+        String notation = board.getBoardNotation();
+        Solution solution = solver.solve(board, Long.MAX_VALUE);
+        Assertions.assertEquals(Solution.DRAW, solution.getResult());
+        Assertions.assertEquals(Solution.DRAW, solveAfter(solver, solution.getMove()).getResult());
+
+        // The solver leaves the board as it was
+        Assertions.assertEquals(notation, board.getBoardNotation());
+
+        // An edge answer to the center loses
+        board.makeMove(1, 1);
+        board.makeMove(0, 1);
+        solution = solver.solve(board, Long.MAX_VALUE);
+        Assertions.assertEquals(Solution.WIN, solution.getResult());
+        Assertions.assertEquals(Solution.LOSS, solveAfter(solver, solution.getMove()).getResult());
+
+        // Three in a row on 4x4 is a win for the first player
+        board = new Board(4, 1);
+        solution = solver.solve(board, Long.MAX_VALUE);
+        Assertions.assertEquals(Solution.WIN, solution.getResult());
+        Assertions.assertEquals(Solution.LOSS, solveAfter(solver, solution.getMove()).getResult());
+
+        // The node limit is respected
+        board = new Board(7, 2);
+        solution = solver.solve(board, 1000);
+        Assertions.assertEquals(Solution.UNKNOWN, solution.getResult());
+        Assertions.assertTrue(solution.getNodes() <= 1001);
+    }
+
+    @Test
+    public void testTablebase() throws IOException {
+        Path path = Files.createTempFile("tablebase", ".bin");
+        try {
+            // Tic-tac-toe has 765 positions without the rotations and mirror images
+            Assertions.assertEquals(765, new TablebaseGenerator(3, 3, 2).generate(path));
+            Tablebase tablebase = Tablebase.open(path);
+
+            board = new Board(3, 0);
+            Assertions.assertEquals(Tablebase.DRAW, Tablebase.result(tablebase.probe(board)));
+            Assertions.assertEquals(9, Tablebase.distance(tablebase.probe(board)));
+
+            // The tablebase agrees with the solver on every position of random games
+            Solver solver = new Solver(1);
+            Random random = new Random(5);
+            for (int game = 0; game < 20; game++) {
+                board.reset();
+                while (!board.isGameOver()) {
+                    final int result = solver.solve(board, Long.MAX_VALUE).getResult();
+                    final int expected = result == Solution.WIN ? Tablebase.WIN : result == Solution.LOSS ? Tablebase.LOSS : Tablebase.DRAW;
+                    Assertions.assertEquals(expected, Tablebase.result(tablebase.probe(board)));
+
+                    // The best move keeps the result
+                    final int move = tablebase.bestMove(board);
+                    board.makeMove(move);
+                    final int child = Tablebase.result(tablebase.probe(board));
+                    Assertions.assertEquals(expected == Tablebase.WIN ? Tablebase.LOSS : expected == Tablebase.LOSS ? Tablebase.WIN : Tablebase.DRAW, child);
+                    board.unmakeMove(move);
+
+                    Move[] moves = board.generateLegalMoves();
+                    board.makeMove(moves[random.nextInt(moves.length)]);
+                }
+            }
+
+            // A different board is not in the tablebase
+            Assertions.assertEquals(Tablebase.NOT_FOUND, tablebase.probe(new Board(4, 1)));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testNetwork() throws IOException {
+        Network network = Network.random(10, 32, 8, 1);
+        board = new Board(10, 5);
+        Evaluation evaluation = new Evaluation();
+        int classical = evaluation.evaluate(board);
+        board.setAccumulator(new Accumulator(network));
+        Accumulator accumulator = board.getAccumulator();
+
+        // A saved network is read back with the same weights
+        Path path = Files.createTempFile("network", ".nnue");
+        try {
+            network.save(path);
+            Network loaded = Network.load(path);
+            Board other = new Board(10, 5);
+            other.setAccumulator(new Accumulator(loaded));
+            Assertions.assertEquals(accumulator.evaluate(X_SIDE), other.getAccumulator().evaluate(X_SIDE));
+            Assertions.assertEquals(accumulator.evaluate(O_SIDE), other.getAccumulator().evaluate(O_SIDE));
+        } finally {
+            Files.delete(path);
+        }
+
+        // The incremental accumulators match accumulators filled from scratch
+        Random random = new Random(6);
+        for (int game = 0; game < 10; game++) {
+            board.reset();
+            ArrayList<Move> played = new ArrayList<>();
+
+            while (!board.isGameOver()) {
+                Move[] legalMoves = board.generateLegalMoves();
+                Move move = legalMoves[random.nextInt(legalMoves.length)];
+                board.makeMove(move);
+                played.add(move);
+
+                Board other = new Board(10, 5);
+                other.setBoardNotation(board.getBoardNotation());
+                other.setAccumulator(new Accumulator(network));
+                Board copy = new Board(board);
+                for (byte side = X_SIDE; side <= O_SIDE; side++) {
+                    Assertions.assertArrayEquals(other.getAccumulator().getValues(side), accumulator.getValues(side));
+                    Assertions.assertArrayEquals(other.getAccumulator().getValues(side), copy.getAccumulator().getValues(side));
+                }
+                Assertions.assertEquals(accumulator.evaluate(board.getSideToMove()), evaluation.evaluate(board));
+            }
+
+            for (int i = played.size() - 1; i >= 0; i--) {
+                board.unmakeMove(played.get(i));
+            }
+            Assertions.assertArrayEquals(new Accumulator(network).getValues(X_SIDE), accumulator.getValues(X_SIDE));
+        }
+
+        // Without an accumulator the classical evaluation is back
+        board.setAccumulator(null);
+        Assertions.assertEquals(classical, evaluation.evaluate(board));
+
+        // The search attaches the network to boards of its size only
+        Search networkSearch = new Search();
+        networkSearch.setNetwork(network);
+        board.makeMove(4, 4);
+        Move bestMove = networkSearch.getBestMove(board, 4);
+        Assertions.assertTrue(board.isEmpty(bestMove.x(), bestMove.y()));
+        Assertions.assertNotNull(board.getAccumulator());
+
+        board = new Board(8, 4);
+        networkSearch.getBestMove(board, 2);
+        Assertions.assertNull(board.getAccumulator());
+    }
+
+    @Test
+    public void testKernels() {
+        Kernels scalar = Kernels.scalar();
+        Kernels vector = Kernels.vector();
+        Kernels best = Kernels.best();
+        Assertions.assertTrue(best == scalar || best.getName().equals("vector"));
+        if (vector == null) {
+            // The JVM was started without the Vector API module
+            Assertions.assertSame(scalar, best);
+            return;
+        }
+
+        // Both kernels give the same results, also for the remainder of a length that doesn't fit the vectors
+        Random random = new Random(7);
+        for (int length : new int[]{1, 7, 16, 33, 256}) {
+            short[] weights = new short[2 * length];
+            int[] activations = new int[length];
+            int[] row = new int[2 * length];
+            for (int i = 0; i < 2 * length; i++) {
+                weights[i] = (short) (random.nextInt(201) - 100);
+                row[i] = random.nextInt(256) - 128;
+            }
+            for (int i = 0; i < length; i++) {
+                activations[i] = random.nextInt(256);
+            }
+
+            short[] scalarValues = new short[length];
+            short[] vectorValues = new short[length];
+            scalar.addColumn(scalarValues, weights, length);
+            vector.addColumn(vectorValues, weights, length);
+            Assertions.assertArrayEquals(scalarValues, vectorValues);
+            scalar.subtractColumn(scalarValues, weights, 0);
+            vector.subtractColumn(vectorValues, weights, 0);
+            Assertions.assertArrayEquals(scalarValues, vectorValues);
+
+            Assertions.assertEquals(scalar.dot(activations, row, length), vector.dot(activations, row, length));
+
+            int[] scalarClipped = new int[length + 1];
+            int[] vectorClipped = new int[length + 1];
+            scalar.clip(Arrays.copyOf(weights, length), scalarClipped, 1, 50);
+            vector.clip(Arrays.copyOf(weights, length), vectorClipped, 1, 50);
+            Assertions.assertArrayEquals(scalarClipped, vectorClipped);
+        }
+
+        // And the same evaluation
+        Network network = Network.random(15, 40, 8, 2);
+        board = new Board(15, 10);
+        board.makeMove(7, 7);
+        board.makeMove(7, 8);
+        network.setKernels(scalar);
+        board.setAccumulator(new Accumulator(network));
+        int expected = board.getAccumulator().evaluate(board.getSideToMove());
+        network.setKernels(vector);
+        board.setAccumulator(new Accumulator(network));
+        Assertions.assertEquals(expected, board.getAccumulator().evaluate(board.getSideToMove()));
+    }
+
+    private Solution solveAfter(Solver solver, int move) {
+        board.makeMove(move);
+        Solution solution = solver.solve(board, Long.MAX_VALUE);
+        board.unmakeMove(move);
+        return solution;
+    }
+
+    private static boolean hasStoneNear(Board board, int x, int y, int radius) {
+        for (int i = Math.max(0, x - radius); i <= Math.min(board.getSize() - 1, x + radius); i++) {
+            for (int j = Math.max(0, y - radius); j <= Math.min(board.getSize() - 1, y + radius); j++) {
+                if (!board.isEmpty(i, j)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 }
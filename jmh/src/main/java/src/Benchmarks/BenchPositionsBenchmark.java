@@ -0,0 +1,58 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import src.Engine.Movegen.Board;
+import src.Engine.Search;
+import src.Engine.TranspositionTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The positions and depth of Search.bench(), warmed up and repeated instead of a single wall-clock run
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class BenchPositionsBenchmark {
+
+    private final TranspositionTable transpositionTable = new TranspositionTable(16);
+    private final Search search = new Search(transpositionTable);
+    private final Board board = new Board(10, 5);
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        transpositionTable.clear();
+    }
+
+    @Benchmark
+    public long bench() {
+        long nodes = 0;
+        for (String position : Search.BENCH_POSITIONS) {
+            board.setBoardNotation(position);
+            search.getBestMove(board, 9);
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+}
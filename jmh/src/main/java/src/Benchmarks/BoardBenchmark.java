@@ -0,0 +1,81 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import src.Engine.Movegen.Board;
+
+import java.util.concurrent.TimeUnit;
+
+import static src.Engine.Types.X_SIDE;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+    @Param({"7", "10", "15"})
+    public int size;
+
+    @Param({"4", "5"})
+    public int winLength;
+
+    private Board board;
+    private int[] moves;
+    private int moveCount;
+
+    @Setup
+    public void setup() {
+        board = Positions.random(size, winLength, size * size / 4, 42);
+        moves = new int[size * size];
+        moveCount = board.generateLegalMoves(moves);
+    }
+
+    @Benchmark
+    public void makeUnmakeMove() {
+        for (int i = 0; i < moveCount; i++) {
+            board.makeMove(moves[i]);
+            board.unmakeMove(moves[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean hasWin() {
+        return board.hasWin(X_SIDE);
+    }
+
+    @Benchmark
+    public boolean fullWinScan() {
+        return board.hasRowColumnWin(X_SIDE) || board.hasDiagonalWin(X_SIDE);
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        return board.generateLegalMoves(moves);
+    }
+
+    @Benchmark
+    public void getKey(Blackhole blackhole) {
+        blackhole.consume(board.getKey());
+    }
+}
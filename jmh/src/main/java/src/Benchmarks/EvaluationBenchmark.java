@@ -0,0 +1,56 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import src.Engine.Evaluation;
+import src.Engine.Movegen.Board;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EvaluationBenchmark {
+
+    @Param({"7", "10", "15"})
+    public int size;
+
+    @Param({"4", "5"})
+    public int winLength;
+
+    @Param({"0.1", "0.3"})
+    public double fill;
+
+    private final Evaluation evaluation = new Evaluation();
+    private Board board;
+
+    @Setup
+    public void setup() {
+        board = Positions.random(size, winLength, (int) (size * size * fill), 42);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluation.evaluate(board);
+    }
+}
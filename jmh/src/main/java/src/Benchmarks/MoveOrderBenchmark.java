@@ -0,0 +1,119 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import src.Engine.History;
+import src.Engine.MoveOrder;
+import src.Engine.MovePicker;
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveOrderBenchmark {
+
+    @Param({"7", "10", "15"})
+    public int size;
+
+    @Param({"5"})
+    public int winLength;
+
+    private final MoveOrder moveOrder = new MoveOrder();
+    private MovePicker movePicker;
+    private Board board;
+    private History history;
+    private int[] moves;
+    private int[] scores;
+    private int moveCount;
+    private int hashMove;
+    private int killer;
+
+    @Setup
+    public void setup() {
+        board = Positions.random(size, winLength, size * size / 4, 42);
+        history = new History(size);
+        moveOrder.init(size);
+        movePicker = new MovePicker(size * size, moveOrder);
+        moves = new int[size * size];
+        scores = new int[size * size];
+        moveCount = board.generateLegalMoves(moves);
+        hashMove = moves[moveCount / 2];
+        killer = moves[moveCount / 3];
+    }
+
+    @Benchmark
+    public int scoreMoves() {
+        moveOrder.scoreMoves(moves, scores, moveCount, killer, hashMove, board, history);
+        return scores[0];
+    }
+
+    /**
+     * Scores the moves and picks them in order, like negamax does at an all-node
+     */
+    @Benchmark
+    public int scoreAndSortAll() {
+        moveOrder.scoreMoves(moves, scores, moveCount, killer, hashMove, board, history);
+        int checksum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            moveOrder.sort(i, moves, scores, moveCount);
+            checksum += moves[i];
+        }
+        return checksum;
+    }
+
+    /**
+     * Scores the moves and only picks the first one, like negamax does at a cut-node
+     */
+    @Benchmark
+    public int scoreAndSortFirst() {
+        moveOrder.scoreMoves(moves, scores, moveCount, killer, hashMove, board, history);
+        moveOrder.sort(0, moves, scores, moveCount);
+        return moves[0];
+    }
+
+    /**
+     * Picks every move with the staged picker, like negamax does at an all-node
+     */
+    @Benchmark
+    public int pickAll() {
+        movePicker.init(board, history, hashMove, killer);
+        int checksum = 0;
+        int move;
+        while ((move = movePicker.next()) != Move.NONE) {
+            checksum += move;
+        }
+        return checksum;
+    }
+
+    /**
+     * Only picks the hash move, like negamax does when the hash move cuts
+     */
+    @Benchmark
+    public int pickFirst() {
+        movePicker.init(board, history, hashMove, killer);
+        return movePicker.next();
+    }
+}
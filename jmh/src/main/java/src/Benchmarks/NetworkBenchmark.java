@@ -0,0 +1,102 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import src.Engine.Movegen.Board;
+import src.Engine.NNUE.Accumulator;
+import src.Engine.NNUE.Kernels;
+import src.Engine.NNUE.Network;
+
+import java.util.concurrent.TimeUnit;
+
+import static src.Engine.Types.X_SIDE;
+
+/**
+ * Compares the scalar and the vector kernels of the network on the accumulator update of a stone,
+ * on a move including the rest of the board and on a full evaluation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NetworkBenchmark {
+
+    @Param({"10", "15", "19"})
+    public int size;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    @Param({"128"})
+    public int width;
+
+    @Param({"16"})
+    public int hiddenWidth;
+
+    private Board board;
+    private Accumulator accumulator;
+    private int x;
+    private int y;
+
+    @Setup
+    public void setup() {
+        final Kernels selected = kernels.equals("vector") ? Kernels.vector() : Kernels.scalar();
+        if (selected == null) {
+            throw new IllegalStateException("The Vector API module is missing");
+        }
+
+        final Network network = Network.random(size, width, hiddenWidth, 42);
+        network.setKernels(selected);
+
+        board = Positions.random(size, 5, size * size / 5, 42);
+        board.setAccumulator(new Accumulator(network));
+        accumulator = board.getAccumulator();
+
+        // Any empty square, the move is undone in every invocation
+        for (int i = 0; i < size * size; i++) {
+            if (board.isEmpty(i / size, i % size)) {
+                x = i / size;
+                y = i % size;
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    public Accumulator addRemove() {
+        accumulator.add(X_SIDE, x * size + y);
+        accumulator.remove(X_SIDE, x * size + y);
+        return accumulator;
+    }
+
+    @Benchmark
+    public Board makeUnmake() {
+        board.makeMove(x, y);
+        board.unmakeMove(x, y);
+        return board;
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return accumulator.evaluate(board.getSideToMove());
+    }
+}
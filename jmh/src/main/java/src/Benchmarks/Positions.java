@@ -0,0 +1,69 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import src.Engine.Movegen.Board;
+
+import java.util.Random;
+
+import static src.Engine.Types.O_SIDE;
+import static src.Engine.Types.X_SIDE;
+
+/**
+ * Creates reproducible positions for the benchmarks
+ */
+final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * Creates a position with random stones in which nobody has won yet
+     *
+     * @param size      The size of the board
+     * @param winLength The amount of stones in a row that are needed for a win
+     * @param stones    The amount of stones to place
+     * @param seed      The seed of the random generator
+     * @return The position
+     */
+    static Board random(int size, int winLength, int stones, long seed) {
+        Board board = new Board(size, size - winLength);
+        Random random = new Random(seed);
+
+        int placed = 0;
+        while (placed < stones) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            if (!board.isEmpty(x, y)) {
+                continue;
+            }
+
+            board.makeMove(x, y);
+
+            // We don't want finished games
+            if (board.hasWin(X_SIDE) || board.hasWin(O_SIDE)) {
+                board.unmakeMove(x, y);
+                continue;
+            }
+            placed++;
+        }
+
+        return board;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import src.Engine.Movegen.Board;
+import src.Engine.Movegen.Move;
+import src.Engine.Search;
+import src.Engine.TranspositionTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-depth searches on fresh tables, which is what bench measures, but warmed up and repeated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"7", "10"})
+    public int size;
+
+    @Param({"4", "5"})
+    public int winLength;
+
+    @Param({"5", "7"})
+    public int depth;
+
+    private final TranspositionTable transpositionTable = new TranspositionTable(16);
+    private final Search search = new Search(transpositionTable);
+    private Board board;
+
+    @Setup
+    public void setup() {
+        board = Positions.random(size, winLength, size * size / 6, 42);
+        search.initHistory(board);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        transpositionTable.clear();
+    }
+
+    @Benchmark
+    public Move getBestMove() {
+        return search.getBestMove(board, depth);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+    TicTacToeAI
+    Copyright (C) 2024 Jochengehtab
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package src.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import src.Engine.TranspositionTable;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TranspositionTableBenchmark {
+
+    // Size in MB
+    @Param({"1", "16", "256"})
+    public int hash;
+
+    private TranspositionTable transpositionTable;
+    private long[] keys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        transpositionTable = new TranspositionTable(hash);
+        SplittableRandom random = new SplittableRandom(42);
+
+        keys = new long[1 << 16];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+
+        // Fill half of the keys, so that probe sees hits and misses
+        for (int i = 0; i < keys.length; i += 2) {
+            transpositionTable.write(keys[i], TranspositionTable.EXACT, (short) 0, i & 0xFFF, (short) 0, (short) (i & 31));
+        }
+    }
+
+    private long nextKey() {
+        index = (index + 1) & (keys.length - 1);
+        return keys[index];
+    }
+
+    @Benchmark
+    public long probe() {
+        return transpositionTable.probe(nextKey());
+    }
+
+    @Benchmark
+    public void write() {
+        transpositionTable.write(nextKey(), TranspositionTable.LOWER_BOUND, (short) 12, 100, (short) 0x0305, (short) 7);
+    }
+}